@@ -0,0 +1,64 @@
+package client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Card name parsing: the table-driven {@link Card#parse} against the linear
+ * scan and the Card.valueOf parsing the clients used before it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CardBenchmark {
+    static final String[] SHORT_CODES = { "2C", "10H", "AS" };
+    static final String[] LONG_NAMES = { "TWO OF CLUBS", "TEN OF HEARTS", "ACE OF SPADES" };
+
+    // early, middle and last entry of Card.values()
+    @Param({ "0", "1", "2" })
+    int card;
+
+    @Benchmark
+    public Card parseShortCode() {
+        return Card.parse(SHORT_CODES[card]);
+    }
+
+    @Benchmark
+    public Card parseLongName() {
+        return Card.parse(LONG_NAMES[card]);
+    }
+
+    @Benchmark
+    public int codeLongName() {
+        return Card.code(LONG_NAMES[card]);
+    }
+
+    @Benchmark
+    public Card legacyFromString() {
+        return legacyFromString(SHORT_CODES[card]);
+    }
+
+    // what BlackjackGUI.getCard used to do
+    @Benchmark
+    public Card legacyGuiGetCard() {
+        return Card.valueOf(LONG_NAMES[card].toUpperCase().replace(' ', '_'));
+    }
+
+    // Card.fromString before the switch-table parser
+    static Card legacyFromString(String card) {
+        card = card.toUpperCase().replace(' ', '_');
+        for (Card c : Card.values()) {
+            if (c.toString().equals(card)) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException("Invalid card: " + card);
+    }
+}
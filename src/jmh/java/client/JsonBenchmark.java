@@ -0,0 +1,79 @@
+package client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.time.LocalDateTime;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.gson.reflect.TypeToken;
+
+/** Decoding cost of the two response shapes the server sends. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonBenchmark {
+    static final String PLAYER_TURN = "{\"sessionId\":\"fb2e4f1c-0aa4-4157-96b5-4692f47cc801\","
+            + "\"playerCards\":[\"TWO OF CLUBS\",\"TEN OF SPADES\"],\"playerValue\":12,"
+            + "\"dealerCards\":[\"JACK OF HEARTS\",\"???\"],\"dealerValue\":null,"
+            + "\"phase\":\"PLAYER_TURN\",\"outcome\":null,\"balance\":0,\"currentBet\":50,"
+            + "\"canHit\":true,\"canStand\":true,\"gameOver\":false,\"cardsRemaining\":48,"
+            + "\"reshuffled\":false}";
+
+    String sessionsJson;
+    ByteArrayInputStream playerTurnBody;
+    GameStateDecoder decoder;
+
+    @Setup
+    public void setup() {
+        List<SessionSummary> sessions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            SessionSummary s = new SessionSummary();
+            s.sessionId = UUID.randomUUID();
+            s.balance = i * 10 - 500;
+            s.currentBet = 10;
+            s.phase = "BETTING";
+            s.lastAccess = LocalDateTime.of(2024, 1, 1, 12, 0).plusMinutes(i);
+            sessions.add(s);
+        }
+        sessionsJson = JsonUtil.GSON.toJson(sessions);
+        playerTurnBody = new ByteArrayInputStream(PLAYER_TURN.getBytes(StandardCharsets.UTF_8));
+        decoder = new GameStateDecoder();
+    }
+
+    @Benchmark
+    public GameState gameStateFromJson() {
+        return GameState.fromJson(PLAYER_TURN);
+    }
+
+    /** The same response from a body stream, the way ClientConnecter decodes it. */
+    @Benchmark
+    public GameState gameStateFromStream() {
+        playerTurnBody.reset();
+        return GameState.fromJson(playerTurnBody);
+    }
+
+    /** Refilling one state in place, as with ClientConnecter.setReuseStates(true). */
+    @Benchmark
+    public GameState gameStateInPlace() throws IOException {
+        playerTurnBody.reset();
+        return decoder.decode(playerTurnBody);
+    }
+
+    @Benchmark
+    public List<SessionSummary> sessionListFromJson() {
+        return JsonUtil.GSON.fromJson(sessionsJson, new TypeToken<List<SessionSummary>>() {
+        }.getType());
+    }
+}
@@ -0,0 +1,53 @@
+package client;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Full ClientConnecter round trips against a StandInServer on loopback with
+ * no injected latency, so the numbers are client and HTTP stack overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoundTripBenchmark {
+    StandInServer server;
+    ClientConnecter clientConnecter;
+    UUID sessionId;
+
+    @Setup
+    public void setup() throws Exception {
+        server = StandInServer.start(0, 0, 0, 42);
+        clientConnecter = new ClientConnecter(server.getBaseUrl(), "bench", "bench");
+        sessionId = clientConnecter.startGame().sessionId;
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public GameState resume() throws Exception {
+        return clientConnecter.resumeSession(sessionId);
+    }
+
+    // bet, stand and reset: one hand in three calls
+    @Benchmark
+    public GameState hand() throws Exception {
+        GameState state = clientConnecter.placeBet(sessionId, 10);
+        if (!state.gameOver) {
+            state = clientConnecter.stand(sessionId);
+        }
+        return clientConnecter.newGame(sessionId);
+    }
+}
@@ -0,0 +1,213 @@
+package client;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays many accounts at once from one JVM. Accounts come from a file in
+ * the same form as the class {@code accounts.txt}. Each account gets its own
+ * {@link ClientConnecter}, all on one shared HttpClient, and its own
+ * {@link HeadlessPlayer}. Sessions from every account are interleaved in
+ * one queue and played by a fixed pool of {@code --workers} virtual
+ * threads, which caps how many sessions (and so requests) are in flight
+ * across the fleet. {@code --rate} limits each account separately with a
+ * token bucket, so no account exceeds what the server allows one user.
+ * To scale up, add accounts.
+ *
+ * With {@code --adaptive} all accounts share one {@link ConcurrencyLimiter},
+ * since they share one server, and back off together when its latency
+ * climbs or it starts refusing requests.
+ *
+ * Every connecter records into one {@link ClientMetrics}, published over JMX
+ * as "fleet".
+ *
+ * Usage: AccountFleet [--accounts FILE] [--sessions N per account] [--hands N]
+ * [--bet N | --ramp SPEC] [--workers N] [--rate REQ_PER_SEC] [--burst N]
+ * [--url URL] [--metrics SECONDS] [--adaptive]
+ */
+public class AccountFleet {
+    /** One username and password. */
+    public static final class Account {
+        public final String username;
+        public final String password;
+
+        public Account(String username, String password) {
+            this.username = username;
+            this.password = password;
+        }
+
+        /**
+         * Reads one account per line as "username password". A comma, colon
+         * or tab between them works too. Blank lines and lines starting with
+         * # are skipped.
+         */
+        public static List<Account> load(Path file) throws IOException {
+            List<Account> accounts = new ArrayList<>();
+            int lineNumber = 0;
+            for (String line : Files.readAllLines(file)) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("[\\s,:]+");
+                if (parts.length != 2) {
+                    throw new IOException(file + " line " + lineNumber + ": expected a username and a password");
+                }
+                accounts.add(new Account(parts[0], parts[1]));
+            }
+            return accounts;
+        }
+
+        @Override
+        public String toString() {
+            return username; // never the password
+        }
+    }
+
+    private final List<HeadlessPlayer> players = new ArrayList<>();
+    private final List<ClientConnecter> connecters = new ArrayList<>();
+    private final ClientMetrics metrics = new ClientMetrics();
+
+    public AccountFleet(List<Account> accounts, String baseUrl, int handsPerSession, BetRamp ramp) {
+        HttpClient http = ClientConnecter.newHttpClient();
+        for (Account account : accounts) {
+            ClientConnecter connecter = new ClientConnecter(baseUrl, account.username, account.password, http);
+            connecter.setMetrics(metrics);
+            connecter.setReuseStates(true);
+            connecters.add(connecter);
+            players.add(new HeadlessPlayer(connecter, handsPerSession, ramp));
+        }
+    }
+
+    /** Sends every account's requests through this limiter; null for none. */
+    public void setConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        for (ClientConnecter connecter : connecters) {
+            connecter.setConcurrencyLimiter(limiter);
+        }
+    }
+
+    /** Limits every account to this many requests per second; 0 for no limit. */
+    public void setRateLimit(double requestsPerSecond, int burst) {
+        for (ClientConnecter connecter : connecters) {
+            connecter.setRateLimit(requestsPerSecond, burst);
+        }
+    }
+
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    public long getHandsPlayed() {
+        long sum = 0;
+        for (HeadlessPlayer player : players) {
+            sum += player.getHandsPlayed();
+        }
+        return sum;
+    }
+
+    /**
+     * Plays {@code sessionsPerAccount} sessions for every account on
+     * {@code workers} threads. The results are indexed [account][session].
+     */
+    public List<List<HeadlessPlayer.SessionResult>> play(int sessionsPerAccount, int workers) throws Exception {
+        List<List<Future<HeadlessPlayer.SessionResult>>> futures = new ArrayList<>();
+        for (int a = 0; a < players.size(); a++) {
+            futures.add(new ArrayList<>(sessionsPerAccount));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(workers, Thread.ofVirtual().name("fleet-", 0).factory());
+        try (pool) {
+            // round-robin, so every account makes progress from the start
+            for (int s = 0; s < sessionsPerAccount; s++) {
+                for (int a = 0; a < players.size(); a++) {
+                    futures.get(a).add(pool.submit(players.get(a)::playSession));
+                }
+            }
+        }
+        List<List<HeadlessPlayer.SessionResult>> results = new ArrayList<>();
+        for (List<Future<HeadlessPlayer.SessionResult>> account : futures) {
+            List<HeadlessPlayer.SessionResult> list = new ArrayList<>(account.size());
+            for (Future<HeadlessPlayer.SessionResult> f : account) {
+                list.add(f.get());
+            }
+            results.add(list);
+        }
+        return results;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Main */
+    /* ------------------------------------------------------------ */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = HeadlessPlayer.parseArgs(args);
+        List<Account> accounts = Account.load(Path.of(options.getOrDefault("accounts", "accounts.txt")));
+        int sessions = Integer.parseInt(options.getOrDefault("sessions", "10"));
+        int hands = Integer.parseInt(options.getOrDefault("hands", "100"));
+        int bet = Integer.parseInt(options.getOrDefault("bet", "10"));
+        int workers = Integer.parseInt(options.getOrDefault("workers", "200"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        int burst = Integer.parseInt(options.getOrDefault("burst", "10"));
+        int metricsEvery = Integer.parseInt(options.getOrDefault("metrics", "30"));
+        String url = options.getOrDefault("url",
+                System.getProperty("blackjack.url", "http://euclid.knox.edu:8080/api/blackjack"));
+        BetRamp ramp = options.containsKey("ramp") ? BetRamp.parse(options.get("ramp")) : BetRamp.flat(bet);
+
+        AccountFleet fleet = new AccountFleet(accounts, url, hands, ramp);
+        fleet.setRateLimit(rate, burst);
+        if (Boolean.parseBoolean(options.getOrDefault("adaptive", "false"))) {
+            fleet.setConcurrencyLimiter(new ConcurrencyLimiter());
+        }
+        fleet.getMetrics().register("fleet");
+        System.out.printf("Playing %d accounts x %d sessions x %d hands against %s on %d workers%s%n",
+                accounts.size(), sessions, hands, url, workers,
+                rate > 0 ? String.format(", %.1f requests/s per account", rate) : "");
+
+        long start = System.nanoTime();
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fleet-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        progress.scheduleAtFixedRate(() -> {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("... %d hands, %.1f hands/sec%n", fleet.getHandsPlayed(),
+                    fleet.getHandsPlayed() / seconds);
+        }, 5, 5, TimeUnit.SECONDS);
+        if (metricsEvery > 0) {
+            progress.scheduleAtFixedRate(() -> System.out.print(fleet.getMetrics().getSummary()),
+                    metricsEvery, metricsEvery, TimeUnit.SECONDS);
+        }
+
+        List<List<HeadlessPlayer.SessionResult>> results = fleet.play(sessions, workers);
+        progress.shutdownNow();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-16s %8s %7s %8s %9s %11s%n", "account", "sessions", "failed", "hands", "balance",
+                "throttled s");
+        for (int a = 0; a < accounts.size(); a++) {
+            int failed = 0;
+            long handCount = 0;
+            long balance = 0;
+            for (HeadlessPlayer.SessionResult r : results.get(a)) {
+                failed += r.error != null ? 1 : 0;
+                handCount += r.hands;
+                balance += r.balance;
+            }
+            System.out.printf("%-16s %8d %7d %8d %9d %11.1f%n", accounts.get(a), results.get(a).size(), failed,
+                    handCount, balance, fleet.connecters.get(a).getThrottledNanos() / 1e9);
+        }
+        long totalHands = fleet.getHandsPlayed();
+        System.out.printf("%d hands in %.2f s = %.1f hands/sec%n", totalHands, seconds, totalHands / seconds);
+        System.out.print(fleet.getMetrics().getSummary());
+    }
+}
@@ -0,0 +1,147 @@
+package client;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Compares bet ramps on simulated shoes. Every ramp plays the same number of
+ * bankroll trajectories, each a fixed number of hands with Hi-Lo index play.
+ * A trajectory is ruined once the bankroll can't cover the minimum bet.
+ * Trajectories are spread across cores with fork/join; each one gets its own
+ * shoe and a {@link SplittableRandom} split from the seed.
+ *
+ * Reports risk of ruin, the mean and median final bankroll, and the growth
+ * rate: mean log(final / start) per 100 hands over every run. A ruined run
+ * counts as ending at the ruin floor, {@link BetRamp#MIN_BET}, so going
+ * broke drags a ramp's growth down instead of dropping out of the average.
+ *
+ * Usage: BetSweep [--bankroll N] [--hands N] [--runs N] [--seed N]
+ * [--ramps flat:10;kelly:1;kelly:0.5;steps:1=20,2=40,3=80]
+ */
+public class BetSweep {
+    static final int LEAF_RUNS = 64;
+
+    public static class Result {
+        public BetRamp ramp;
+        public int runs;
+        public int ruined;
+        public double meanFinal;
+        public long medianFinal;
+        public double growthPer100;
+        public double averageBet;
+
+        public double getRiskOfRuin() {
+            return ruined / (double) runs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s RoR %6.2f%%  mean %,12.0f  median %,10d  growth/100 %+.5f  avg bet %.1f",
+                    ramp, getRiskOfRuin() * 100, meanFinal, medianFinal, growthPer100, averageBet);
+        }
+    }
+
+    private static class SweepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final BetRamp ramp;
+        private final Simulator.Policy policy;
+        private final long bankroll;
+        private final int hands;
+        private final long[] finals;
+        private final long[] wagered;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        SweepTask(BetRamp ramp, Simulator.Policy policy, long bankroll, int hands, long[] finals, long[] wagered,
+                int from, int to, SplittableRandom random) {
+            this.ramp = ramp;
+            this.policy = policy;
+            this.bankroll = bankroll;
+            this.hands = hands;
+            this.finals = finals;
+            this.wagered = wagered;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_RUNS) {
+                for (int run = from; run < to; run++) {
+                    playRun(run, random.split());
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SweepTask(ramp, policy, bankroll, hands, finals, wagered, from, mid, random.split()),
+                    new SweepTask(ramp, policy, bankroll, hands, finals, wagered, mid, to, random.split()));
+        }
+
+        private void playRun(int run, SplittableRandom runRandom) {
+            Simulator.Table table = new Simulator.Table(1, runRandom);
+            long balance = bankroll;
+            long total = 0;
+            for (int hand = 0; hand < hands; hand++) {
+                int bet = ramp.bet(table.getTrueCount(), balance);
+                if (bet == 0) {
+                    break; // ruined
+                }
+                total += bet;
+                balance += table.playRound(policy, bet);
+            }
+            finals[run] = Math.max(balance, 0);
+            wagered[run] = total;
+        }
+    }
+
+    public static Result sweep(BetRamp ramp, long bankroll, int hands, int runs, long seed) {
+        long[] finals = new long[runs];
+        long[] wagered = new long[runs];
+        Simulator.Policy policy = Simulator.policies().get("hi-lo");
+        ForkJoinPool.commonPool().invoke(
+                new SweepTask(ramp, policy, bankroll, hands, finals, wagered, 0, runs, new SplittableRandom(seed)));
+
+        Result result = new Result();
+        result.ramp = ramp;
+        result.runs = runs;
+        double sumFinal = 0;
+        double sumLog = 0;
+        double sumWagered = 0;
+        for (int i = 0; i < runs; i++) {
+            sumFinal += finals[i];
+            sumWagered += wagered[i];
+            if (finals[i] < BetRamp.MIN_BET) {
+                result.ruined++;
+            }
+            sumLog += Math.log(Math.max(finals[i], BetRamp.MIN_BET) / (double) bankroll);
+        }
+        result.meanFinal = sumFinal / runs;
+        result.growthPer100 = sumLog / runs / hands * 100;
+        result.averageBet = sumWagered / ((double) runs * hands);
+        Arrays.sort(finals);
+        result.medianFinal = finals[runs / 2];
+        return result;
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = HeadlessPlayer.parseArgs(args);
+        long bankroll = Long.parseLong(options.getOrDefault("bankroll", "2000"));
+        int hands = Integer.parseInt(options.getOrDefault("hands", "10000"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "10000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        String ramps = options.getOrDefault("ramps", "flat:10;kelly:1;kelly:0.5;kelly:0.25;steps:1=20,2=40,3=80");
+
+        System.out.printf("bankroll %,d, %,d hands x %,d runs per ramp, seed %d%n", bankroll, hands, runs, seed);
+        for (String spec : ramps.split(";")) {
+            long start = System.nanoTime();
+            Result result = sweep(BetRamp.parse(spec.trim()), bankroll, hands, runs, seed);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s  [%.1f s]%n", result, seconds);
+        }
+    }
+}
@@ -5,7 +5,9 @@ import java.util.Scanner;
 import java.util.UUID;
 
 public class BlackjackClient {
-    private static final String BASE_URL = "http://euclid.knox.edu:8080/api/blackjack";
+    // -Dblackjack.url=http://localhost:8080/api/blackjack to play against StandInServer
+    private static final String BASE_URL = System.getProperty("blackjack.url",
+            "http://euclid.knox.edu:8080/api/blackjack");
     private static final String USERNAME = "spant"; // replace with your username
     private static final String PASSWORD = "2ec6db"; // replace with your from the file posted to Classroom
 
@@ -124,7 +126,7 @@ public class BlackjackClient {
         try {
             System.out.println(
                     "Your cards: " + String.join(", ", state.playerCards) + " (value: " + state.playerValue + ")");
-            if (state.dealerValue != null) {
+            if (state.dealerValue != GameState.HIDDEN_VALUE) {
                 System.out.println("Dealer cards: " + String.join(", ", state.dealerCards) + " (value: "
                         + state.dealerValue + ")");
             } else {
@@ -1,19 +1,31 @@
 package client;
 
+import java.awt.BorderLayout;
+import java.awt.Cursor;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.HashMap;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
-import javax.swing.DefaultListModel;
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -23,31 +35,45 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
 
 //TODO:
 // check buttons, reshuffle
 public class BlackjackGUI extends JFrame {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(BlackjackGUI.class);
 
     private JButton hitButton;
     private JButton standButton;
     private JLabel scoreLabel;
 
-    private static final String BASE_URL = "http://euclid.knox.edu:8080/api/blackjack";
+    // -Dblackjack.url=http://localhost:8080/api/blackjack to play against StandInServer
+    private static final String BASE_URL = System.getProperty("blackjack.url",
+            "http://euclid.knox.edu:8080/api/blackjack");
     private static final String USERNAME = "spant";
     private static final String PASSWORD = "2ec6db";
+    // -Dblackjack.prefetch=false skips fetching the session list at startup
+    private static final boolean PREFETCH = Boolean.parseBoolean(System.getProperty("blackjack.prefetch", "true"));
+    private static final long CLASS_LOADED = System.currentTimeMillis();
+    // -Dblackjack.history=FILE appends every state the GUI receives to a HandHistory
+    private static final String HISTORY_FILE = System.getProperty("blackjack.history");
+    private static HandHistory history; // one per JVM, shared by every connecter
 
     private ClientConnecter clientConnecter;
+    private SessionCache sessionCache;
+    private GuiExecutor calls;
     private CardPanel cardPanel;
-    private Map<Card, ImageIcon> cardImages;
     private UUID sessionId;
     private GameState currState;
 
     public BlackjackGUI() {
+        this(CardAtlas.loadAsync(), new SessionCache(newConnecter()));
+    }
+
+    private BlackjackGUI(CompletableFuture<Map<Card, BufferedImage>> cardImages, SessionCache sessionCache) {
         setTitle("Blackjack Game");
         setSize(1000, 800);
-        loadCards();
 
         hitButton = new JButton("Hit");
         standButton = new JButton("Stand");
@@ -74,7 +100,14 @@ public class BlackjackGUI extends JFrame {
             }
         });
 
-        clientConnecter = new ClientConnecter(BASE_URL, USERNAME, PASSWORD);
+        this.sessionCache = sessionCache;
+        clientConnecter = sessionCache.getConnecter();
+        calls = new GuiExecutor(new GuiExecutor.BusyListener() {
+            @Override
+            public void busyChanged(boolean busy) {
+                setBusy(busy);
+            }
+        });
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
@@ -102,7 +135,8 @@ public class BlackjackGUI extends JFrame {
         if (scoreLabel == null || currState == null)
             return;
         int playerVal = currState.playerValue;
-        String dealerValue = (currState.dealerValue != null) ? currState.dealerValue.toString() : "?";
+        String dealerValue = (currState.dealerValue != GameState.HIDDEN_VALUE)
+                ? String.valueOf(currState.dealerValue) : "?";
         String balance = String.valueOf(currState.balance);
         String remaining = String.valueOf(currState.cardsRemaining);
         scoreLabel.setText("Player: " + playerVal +
@@ -122,6 +156,10 @@ public class BlackjackGUI extends JFrame {
         cardPanel.addKeyListener(new KeyListener() {
             @Override
             public void keyPressed(KeyEvent e) {
+                // presses (and key auto-repeat) while a call is in flight are
+                // dropped, so holding 'h' can't queue up a run of hits
+                if (calls.isBusy())
+                    return;
                 char ch = e.getKeyChar();
                 if (ch == 'h')
                     handleHit();
@@ -176,68 +214,141 @@ public class BlackjackGUI extends JFrame {
     /* Game flow */
     /* ------------------------------------------------------------ */
     private void startNewGame() {
-        try {
-            clearState(); // Clear any existing state first
-            currState = clientConnecter.startGame();
-            if (currState != null) {
-                sessionId = currState.sessionId;
-                cardPanel.clearCards();
-                askForBet();
-            } else {
-                showError("Failed to initialize game state");
+        clearState(); // Clear any existing state first
+        calls.submit(new GuiExecutor.Task<GameState>() {
+            @Override
+            protected GameState call() throws Exception {
+                return clientConnecter.startGame();
             }
-        } catch (Exception e) {
-            showError("Error starting new game: " + e.getMessage());
-        }
+
+            @Override
+            protected void succeeded(GameState state) {
+                sessionCache.markStale();
+                currState = state;
+                if (currState != null) {
+                    sessionId = currState.sessionId;
+                    cardPanel.clearCards();
+                    askForBet();
+                } else {
+                    showError("Failed to initialize game state");
+                }
+            }
+
+            @Override
+            protected void failed(Exception e) {
+                showError("Error starting new game: " + e.getMessage());
+            }
+        });
     }
 
     private void reconnectSession() {
-        try {
-            List<SessionSummary> sessions = clientConnecter.listSessions();
-            if (sessions.isEmpty()) {
-                JOptionPane.showMessageDialog(this, "No saved sessions found");
-                return;
+        calls.submit(new GuiExecutor.Task<SessionIndex>() {
+            @Override
+            protected SessionIndex call() throws Exception {
+                // instant once cached; a stale snapshot is shown while a fresh one loads
+                try {
+                    return sessionCache.get().join();
+                } catch (CompletionException e) {
+                    // as ClientConnecter.await: the IOException itself, not its wrapper
+                    Throwable cause = e.getCause();
+                    if (cause instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) cause).getCause();
+                    }
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
             }
 
-            DefaultListModel<String> model = new DefaultListModel<>();
-            Map<String, UUID> map = new HashMap<>();
-            for (SessionSummary s : sessions) {
-                String label = s.sessionId.toString().substring(0, 8) + "… | Balance: " + s.balance;
-                model.addElement(label);
-                map.put(label, s.sessionId);
+            @Override
+            protected void succeeded(SessionIndex index) {
+                if (index.isEmpty()) {
+                    JOptionPane.showMessageDialog(BlackjackGUI.this, "No saved sessions found");
+                    return;
+                }
+                showSessionDialog(index);
             }
 
-            final JList<String> list = new JList<>(model);
-            JScrollPane pane = new JScrollPane(list);
-            final JDialog dlg = new JDialog(this, "Select Session(Double Click)", true);
-            dlg.setSize(300, 200);
-            dlg.add(pane);
-            list.addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseClicked(MouseEvent e) {
-                    if (e.getClickCount() == 2) {
-                        String sel = list.getSelectedValue();
-                        UUID id = map.get(sel);
-                        dlg.dispose();
-                        try {
-                            currState = clientConnecter.resumeSession(id);
-                            sessionId = currState.sessionId;
-                            cardPanel.clearCards();
-                            askForBet();
-                        } catch (Exception ex) {
-                            showError("Resume error: " + ex.getMessage());
+            @Override
+            protected void failed(Exception e) {
+                showError("Failed to load sessions: " + e.getMessage());
+            }
+        });
+    }
+
+    private void showSessionDialog(SessionIndex index) {
+        final SessionListModel model = new SessionListModel(index, SessionIndex.Sort.LAST_ACCESS);
+        final JList<String> list = new JList<>(model);
+        // fixed row size, so the list never measures rows it isn't painting
+        list.setPrototypeCellValue(model.getElementAt(0));
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        final JComboBox<SessionIndex.Sort> sortBox = new JComboBox<>(SessionIndex.Sort.values());
+        sortBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                model.setSort((SessionIndex.Sort) sortBox.getSelectedItem());
+            }
+        });
+
+        final JDialog dlg = new JDialog(this, "Select Session(Double Click)", true);
+        dlg.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dlg.setSize(360, 300);
+        dlg.add(sortBox, BorderLayout.NORTH);
+        dlg.add(new JScrollPane(list), BorderLayout.CENTER);
+        sessionCache.setListener(new Consumer<SessionIndex>() {
+            @Override
+            public void accept(final SessionIndex fresh) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (dlg.isDisplayable()) {
+                            model.setIndex(fresh);
                         }
                     }
+                });
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int selected = list.getSelectedIndex();
+                if (e.getClickCount() == 2 && selected >= 0) {
+                    UUID id = model.getSessionId(selected);
+                    dlg.dispose();
+                    resumeSession(id);
                 }
-            });
-            dlg.setLocationRelativeTo(this);
-            dlg.setVisible(true);
-        } catch (Exception e) {
-            showError("Failed to load sessions: " + e.getMessage());
-        }
+            }
+        });
+        dlg.setLocationRelativeTo(this);
+        dlg.setVisible(true);
+        sessionCache.setListener(null);
+    }
+
+    private void resumeSession(final UUID id) {
+        calls.submit(new GuiExecutor.Task<GameState>() {
+            @Override
+            protected GameState call() throws Exception {
+                return clientConnecter.resumeSession(id);
+            }
+
+            @Override
+            protected void succeeded(GameState state) {
+                currState = state;
+                sessionId = currState.sessionId;
+                cardPanel.clearCards();
+                askForBet();
+            }
+
+            @Override
+            protected void failed(Exception e) {
+                showError("Resume error: " + e.getMessage());
+            }
+        });
     }
 
     private void askForBet() {
+        int bet;
         while (true) {
             String in = JOptionPane.showInputDialog(this, "Enter bet (multiple of 10 and <=1000):");
             if (in == null) {
@@ -245,85 +356,117 @@ public class BlackjackGUI extends JFrame {
                 return;
             }
             try {
-                int bet = Integer.parseInt(in);
+                bet = Integer.parseInt(in);
                 if (bet <= 0 || bet % 10 != 0)
                     throw new NumberFormatException();
+                break;
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "Invalid bet. Enter a positive multiple of 10.");
+            }
+        }
 
-                // Make sure we have a valid session before placing bet
-                System.out.println(
-                        "Session Id is: " + sessionId + " and let's see if currState is null " + (currState == null));
-                if (sessionId == null || currState == null) {
-                    showError("Invalid session state. Starting a new game.");
-                    startNewGame();
-                    return;
-                }
+        // Make sure we have a valid session before placing bet
+        LOG.debug("placing bet {} on session {}", bet, sessionId);
+        if (sessionId == null || currState == null) {
+            showError("Invalid session state. Starting a new game.");
+            startNewGame();
+            return;
+        }
 
-                currState = clientConnecter.placeBet(sessionId, bet);
+        final UUID id = sessionId;
+        final int amount = bet;
+        calls.submit(new GuiExecutor.Task<GameState>() {
+            @Override
+            protected GameState call() throws Exception {
+                return clientConnecter.placeBet(id, amount);
+            }
 
+            @Override
+            protected void succeeded(GameState state) {
+                currState = state;
                 // Verify we got a valid state back
-                if (currState == null || currState.playerCards == null || currState.dealerCards == null) {
+                if (currState == null || currState.playerCards.isEmpty()) {
                     showError("Received invalid game state. Starting a new game.");
                     startNewGame();
                     return;
                 }
-
                 displayInitialCards();
                 updateButtonStates();
                 updateScoreLabel();
-                break;
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(this, "Invalid bet. Enter a positive multiple of 10.");
-            } catch (Exception ex) {
-                showError("Error placing bet: " + ex.getMessage());
+            }
+
+            @Override
+            protected void failed(Exception e) {
+                showError("Error placing bet: " + e.getMessage());
                 // Try to recover by starting a new game
                 startNewGame();
-                return;
             }
-        }
+        });
     }
 
     private void displayInitialCards() {
-        cardPanel.clearCards();
-
         // Safety check to ensure we have valid card collections
-        if (currState == null || currState.playerCards == null || currState.dealerCards == null ||
-                currState.dealerCards.isEmpty()) {
+        if (currState == null || currState.dealerCards.isEmpty()) {
+            cardPanel.clearCards();
             showError("Invalid card state detected.");
             return;
         }
 
-        for (String p : currState.playerCards)
-            cardPanel.addPlayerCard(getCard(p));
-        cardPanel.addDealerCard(getCard(currState.dealerCards.get(0))); // show only first dealer card
-        repaint();
+        // only cards that weren't already on the table get drawn
+        cardPanel.setPlayerCards(getCards(currState.playerCards));
+        cardPanel.setDealerCards(getCards(currState.dealerCards.subList(0, 1))); // show only first dealer card
     }
 
     private void handleHit() {
-        try {
-            currState = clientConnecter.hit(sessionId);
-            displayInitialCards();
-            updateScoreLabel();
-            if (!currState.canHit || currState.gameOver)
-                finishRound();
-        } catch (Exception e) {
-            showError("Hit failed: " + e.getMessage());
-        }
+        if (sessionId == null)
+            return;
+        final UUID id = sessionId;
+        calls.submit(new GuiExecutor.Task<GameState>() {
+            @Override
+            protected GameState call() throws Exception {
+                return clientConnecter.hit(id);
+            }
+
+            @Override
+            protected void succeeded(GameState state) {
+                currState = state;
+                displayInitialCards();
+                updateScoreLabel();
+                if (!currState.canHit || currState.gameOver)
+                    finishRound();
+            }
+
+            @Override
+            protected void failed(Exception e) {
+                showError("Hit failed: " + e.getMessage());
+            }
+        });
     }
 
     private void handleStand() {
-        try {
-            currState = clientConnecter.stand(sessionId);
-            cardPanel.clearCards();
-            for (String p : currState.playerCards)
-                cardPanel.addPlayerCard(getCard(p));
-            for (String d : currState.dealerCards)
-                cardPanel.addDealerCard(getCard(d));
-            repaint();
-            updateScoreLabel();
-            finishRound();
-        } catch (Exception e) {
-            showError("Stand failed: " + e.getMessage());
-        }
+        if (sessionId == null)
+            return;
+        final UUID id = sessionId;
+        calls.submit(new GuiExecutor.Task<GameState>() {
+            @Override
+            protected GameState call() throws Exception {
+                return clientConnecter.stand(id);
+            }
+
+            @Override
+            protected void succeeded(GameState state) {
+                currState = state;
+                cardPanel.setPlayerCards(getCards(currState.playerCards));
+                cardPanel.setDealerCards(getCards(currState.dealerCards));
+                updateScoreLabel();
+                finishRound();
+            }
+
+            @Override
+            protected void failed(Exception e) {
+                showError("Stand failed: " + e.getMessage());
+            }
+        });
     }
 
     private void finishRound() {
@@ -333,48 +476,83 @@ public class BlackjackGUI extends JFrame {
                         + currState.balance + " units",
                 " Game Over", JOptionPane.INFORMATION_MESSAGE);
 
+        final UUID id = sessionId;
         int again = JOptionPane.showConfirmDialog(this, "Play again?", "New Round", JOptionPane.YES_NO_OPTION);
         if (again == JOptionPane.YES_OPTION) {
-            try {
-                clearCards();
-                // Make sure we keep our session ID
-                // Save the current state before starting a new round
-                clientConnecter.finishGame(sessionId);
-                // Start a new round with the same session
-                System.out.println("Game is saved now trying to call the same game again down");
-                currState = clientConnecter.resumeSession(currState.sessionId);
-                // Make sure we still have the correct session ID
-                System.out.println("New game was called successfully");
-                sessionId = currState.sessionId;
-                // Check if we have a valid state before proceeding
-                // System.out.println(currState);
-                // System.out.println(currState.playerValue);
-                System.out.println(sessionId);
-                if (currState != null) {
-                    askForBet();
-                } else {
-                    showError("Invalid game state returned. Starting a new game instead.");
+            clearCards();
+            calls.submit(new GuiExecutor.Task<GameState>() {
+                @Override
+                protected GameState call() throws Exception {
+                    // Save the current state, then start a new round with the same session
+                    clientConnecter.finishGame(id);
+                    LOG.debug("saved {}, resuming it", id);
+                    return clientConnecter.resumeSession(id);
+                }
+
+                @Override
+                protected void succeeded(GameState state) {
+                    sessionCache.markStale();
+                    currState = state;
+                    // Check if we have a valid state before proceeding
+                    if (currState != null) {
+                        sessionId = currState.sessionId;
+                        LOG.debug("new round on {}", sessionId);
+                        askForBet();
+                    } else {
+                        showError("Invalid game state returned. Starting a new game instead.");
+                        startNewGame();
+                    }
+                }
+
+                @Override
+                protected void failed(Exception e) {
+                    showError("Failed to start new round: " + e.getMessage());
+                    // Try to recover by starting a new game
                     startNewGame();
                 }
-            } catch (Exception e) {
-                showError("Failed to start new round: " + e.getMessage());
-                // Try to recover by starting a new game
-                startNewGame();
-            }
+            });
         } else {
-            try {
-                // Make sure to save the game before clearing everything
-                clientConnecter.finishGame(sessionId);
-                resetScoreLabel();
-                clearState();
-                repaint();
-            } catch (Exception e) {
-                showError("Cannot Save: " + e.getMessage());
-                // Even if saving fails, we should still clear the UI
-                resetScoreLabel();
-                clearState();
-                repaint();
-            }
+            calls.submit(new GuiExecutor.Task<Void>() {
+                @Override
+                protected Void call() throws Exception {
+                    // Make sure to save the game before clearing everything
+                    clientConnecter.finishGame(id);
+                    return null;
+                }
+
+                @Override
+                protected void succeeded(Void result) {
+                    sessionCache.markStale();
+                    endSession();
+                }
+
+                @Override
+                protected void failed(Exception e) {
+                    showError("Cannot Save: " + e.getMessage());
+                    // Even if saving fails, we should still clear the UI
+                    endSession();
+                }
+            });
+        }
+    }
+
+    private void endSession() {
+        resetScoreLabel();
+        clearState();
+        repaint();
+    }
+
+    // while a call is in flight nothing that sends another one is enabled
+    private void setBusy(boolean busy) {
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+        for (int i = 0; i < getJMenuBar().getMenuCount(); i++) {
+            getJMenuBar().getMenu(i).setEnabled(!busy);
+        }
+        if (busy) {
+            hitButton.setEnabled(false);
+            standButton.setEnabled(false);
+        } else {
+            updateButtonStates();
         }
     }
 
@@ -396,15 +574,17 @@ public class BlackjackGUI extends JFrame {
     /* ------------------------------------------------------------ */
     /* Utility */
     /* ------------------------------------------------------------ */
+    // null for the dealer's hidden card, which CardPanel skips
     private Card getCard(String name) {
-        return Card.valueOf(name.toUpperCase().replace(' ', '_'));
+        return Card.parse(name);
     }
 
-    private void loadCards() {
-        cardImages = new HashMap<Card, ImageIcon>();
-        for (Card c : Card.values()) {
-            cardImages.put(c, new ImageIcon(getClass().getResource("/assets/" + c.getFilename())));
+    private List<Card> getCards(List<String> names) {
+        List<Card> cards = new ArrayList<Card>(names.size());
+        for (String name : names) {
+            cards.add(getCard(name));
         }
+        return cards;
     }
 
     public void clearCards() {
@@ -415,11 +595,77 @@ public class BlackjackGUI extends JFrame {
     /* ------------------------------------------------------------ */
     /* Main */
     /* ------------------------------------------------------------ */
+    private static ClientConnecter newConnecter() {
+        ClientConnecter connecter = new ClientConnecter(BASE_URL, USERNAME, PASSWORD);
+        connecter.setHedging(true); // only affects listSessions and resumeSession
+        HandHistory h = history();
+        if (h != null) {
+            connecter.setStateListener(h);
+        }
+        return connecter;
+    }
+
+    private static synchronized HandHistory history() {
+        if (history == null && HISTORY_FILE != null) {
+            try {
+                HandHistory h = HandHistory.open(Path.of(HISTORY_FILE));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        h.close();
+                    } catch (IOException e) {
+                        // the periodic force already wrote the records
+                    }
+                }, "hand-history-close"));
+                history = h;
+            } catch (IOException e) {
+                LOG.error("Cannot open hand history " + HISTORY_FILE, e);
+            }
+        }
+        return history;
+    }
+
+    // times are from JVM start, or from class load if the OS won't say
+    private static void reportStartup(String milestone) {
+        long start = ProcessHandle.current().info().startInstant().map(Instant::toEpochMilli).orElse(CLASS_LOADED);
+        LOG.info("Startup: {} after {} ms", milestone, System.currentTimeMillis() - start);
+    }
+
     public static void main(String[] args) {
+        // decode the cards and open the connection while Swing starts up
+        final CompletableFuture<Map<Card, BufferedImage>> cardImages = CardAtlas.loadAsync();
+        cardImages.thenRun(new Runnable() {
+            @Override
+            public void run() {
+                reportStartup("card images decoded");
+            }
+        });
+        final SessionCache sessionCache = new SessionCache(newConnecter());
+        // a prefetch lands in the cache, so the first Reconnect opens instantly
+        CompletableFuture<?> warm = PREFETCH ? sessionCache.get() : sessionCache.getConnecter().warmUpAsync();
+        warm.whenComplete(new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object result, Throwable error) {
+                reportStartup(error != null ? "server warm-up failed (" + error.getMessage() + ")"
+                        : PREFETCH ? "connection warm, sessions prefetched" : "connection warm");
+            }
+        });
+
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
-                BlackjackGUI gui = new BlackjackGUI();
+                final BlackjackGUI gui = new BlackjackGUI(cardImages, sessionCache);
+                gui.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowOpened(WindowEvent e) {
+                        // runs after the first paint has been queued and handled
+                        SwingUtilities.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                reportStartup("first interactive frame");
+                            }
+                        });
+                    }
+                });
                 gui.setVisible(true);
             }
         });
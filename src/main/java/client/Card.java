@@ -55,19 +55,159 @@ public enum Card
     KING_OF_SPADES("KS"),
     ACE_OF_SPADES("AS");
 
+    /** What the server sends in place of the dealer's face-down card. */
+    public static final String HIDDEN = "???";
+    /** {@link #code} result for the hidden-card marker. */
+    public static final int HIDDEN_CODE = -1;
+    /** {@link #code} result for text that is not a card. */
+    public static final int NO_CODE = -2;
+
+    private static final Card[] VALUES = values();
+
     private String string;
+    private final String name;
     Card(String card) {
         this.string = card;
+        this.name = name().replace('_', ' ');
+    }
+
+    /** The name the server uses, e.g. "TWO OF CLUBS". */
+    public String getName() {
+        return name;
+    }
+
+    /** Rank index: 0 = two ... 8 = ten, 9 = jack, 10 = queen, 11 = king, 12 = ace. */
+    public int rank() {
+        return ordinal() % 13;
+    }
+
+    /** Blackjack points with the ace counted as 1. */
+    public int points() {
+        return points(ordinal());
+    }
+
+    /** Blackjack points for a card code, with the ace counted as 1. */
+    public static int points(int code) {
+        int rank = code % 13;
+        return rank == 12 ? 1 : Math.min(rank + 2, 10);
+    }
+
+    /** The card with the given {@link #ordinal()}. */
+    public static Card of(int code) {
+        return VALUES[code];
+    }
+
+    /**
+     * Parses any spelling of a card: server names ("TWO OF CLUBS"), enum
+     * names ("TWO_OF_CLUBS") or short codes ("2C", "10c"). Returns null for
+     * the hidden card "???".
+     */
+    public static Card parse(CharSequence card) {
+        int code = code(card);
+        if (code == NO_CODE) {
+            throw new IllegalArgumentException("Invalid card: " + card);
+        }
+        return code == HIDDEN_CODE ? null : VALUES[code];
     }
 
     public static Card fromString(String card) {
-        card = card.toUpperCase().replace(' ', '_');
-        for (Card c : Card.values()) {
-            if (c.string.equals(card)) {
-                return c;
+        return parse(card);
+    }
+
+    public static boolean isHidden(CharSequence card) {
+        return code(card) == HIDDEN_CODE;
+    }
+
+    /**
+     * Allocation-free lookup for streaming decoders: the card's ordinal,
+     * {@link #HIDDEN_CODE} or {@link #NO_CODE}. The rank and suit are read off
+     * a few fixed character positions, then the text is checked against that
+     * one candidate, so the cost doesn't depend on where the card sits in the deck.
+     */
+    public static int code(CharSequence card) {
+        int len = card.length();
+        if (len < 2) {
+            return NO_CODE;
+        }
+        int rank;
+        int suit;
+        if (len <= 3) {
+            if (len == 3 && card.charAt(0) == '?' && card.charAt(1) == '?' && card.charAt(2) == '?') {
+                return HIDDEN_CODE;
+            }
+            rank = shortRank(upper(card.charAt(0)));
+            suit = suit(upper(card.charAt(len - 1)));
+        } else {
+            rank = longRank(upper(card.charAt(0)), upper(card.charAt(1)));
+            int sep = len - 1;
+            while (sep > 0 && card.charAt(sep) != ' ' && card.charAt(sep) != '_') {
+                sep--;
+            }
+            suit = suit(upper(card.charAt(sep + 1)));
+        }
+        if (rank < 0 || suit < 0) {
+            return NO_CODE;
+        }
+        int code = suit * 13 + rank;
+        Card c = VALUES[code];
+        return matches(card, len <= 3 ? c.string : c.name) ? code : NO_CODE;
+    }
+
+    private static char upper(char ch) {
+        return (ch >= 'a' && ch <= 'z') ? (char) (ch - 32) : ch;
+    }
+
+    // ranks are numbered 0 = two ... 8 = ten, 9 = jack, 10 = queen, 11 = king, 12 = ace
+    private static int shortRank(char ch) {
+        switch (ch) {
+            case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9':
+                return ch - '2';
+            case '1': return 8; // "10"
+            case 'J': return 9;
+            case 'Q': return 10;
+            case 'K': return 11;
+            case 'A': return 12;
+            default: return -1;
+        }
+    }
+
+    private static int longRank(char first, char second) {
+        switch (first) {
+            case 'T': return second == 'W' ? 0 : second == 'H' ? 1 : second == 'E' ? 8 : -1;
+            case 'F': return second == 'O' ? 2 : second == 'I' ? 3 : -1;
+            case 'S': return second == 'I' ? 4 : second == 'E' ? 5 : -1;
+            case 'E': return 6;
+            case 'N': return 7;
+            case 'J': return 9;
+            case 'Q': return 10;
+            case 'K': return 11;
+            case 'A': return 12;
+            default: return -1;
+        }
+    }
+
+    private static int suit(char ch) {
+        switch (ch) {
+            case 'C': return 0;
+            case 'D': return 1;
+            case 'H': return 2;
+            case 'S': return 3;
+            default: return -1;
+        }
+    }
+
+    // case-insensitive, with '_' standing in for ' '
+    private static boolean matches(CharSequence card, String expected) {
+        if (card.length() != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            char ch = upper(card.charAt(i));
+            if (ch != expected.charAt(i) && !(ch == '_' && expected.charAt(i) == ' ')) {
+                return false;
             }
         }
-        throw new IllegalArgumentException("Invalid card: " + card);
+        return true;
     }
 
     public String toString() {
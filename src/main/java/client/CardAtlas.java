@@ -0,0 +1,159 @@
+package client;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Loads the card images. The build packs every card into one atlas,
+ * /assets/cards.png, with an index in /assets/cards.txt (see the cardAtlas
+ * task in build.gradle). One PNG is decoded and each card is a sub-image
+ * sharing its pixels. When the atlas isn't on the classpath, e.g. when run
+ * from an IDE without the Gradle build, the individual PNGs are decoded in
+ * parallel instead.
+ *
+ * {@link #main} is the packer the build runs, in its own headless JVM:
+ * CardAtlas SOURCE_DIR OUTPUT_DIR.
+ */
+public final class CardAtlas {
+    static final String ATLAS = "/assets/cards.png";
+    static final String INDEX = "/assets/cards.txt";
+    static final int COLUMNS = 13;
+
+    private CardAtlas() {
+    }
+
+    /** Starts loading on a background thread; join when the images are first needed. */
+    public static CompletableFuture<Map<Card, BufferedImage>> loadAsync() {
+        return CompletableFuture.supplyAsync(CardAtlas::load);
+    }
+
+    public static Map<Card, BufferedImage> load() {
+        try {
+            URL atlas = CardAtlas.class.getResource(ATLAS);
+            URL index = CardAtlas.class.getResource(INDEX);
+            return atlas != null && index != null ? fromAtlas(atlas, index) : fromFiles();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<Card, BufferedImage> fromAtlas(URL atlasUrl, URL indexUrl) throws IOException {
+        Map<String, int[]> cells = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(indexUrl.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length == 5) {
+                    cells.put(parts[0], new int[] { Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                            Integer.parseInt(parts[3]), Integer.parseInt(parts[4]) });
+                }
+            }
+        }
+        BufferedImage atlas = read(atlasUrl);
+        Map<Card, BufferedImage> images = new EnumMap<>(Card.class);
+        for (Card card : Card.values()) {
+            int[] cell = cells.get(card.getFilename());
+            if (cell == null) {
+                throw new IOException("No " + card.getFilename() + " in " + INDEX);
+            }
+            images.put(card, atlas.getSubimage(cell[0], cell[1], cell[2], cell[3]));
+        }
+        return images;
+    }
+
+    private static Map<Card, BufferedImage> fromFiles() {
+        BufferedImage[] decoded = new BufferedImage[Card.values().length];
+        Arrays.stream(Card.values()).parallel().forEach(card -> {
+            try {
+                decoded[card.ordinal()] = read(CardAtlas.class.getResource("/assets/" + card.getFilename()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot load " + card.getFilename(), e);
+            }
+        });
+        Map<Card, BufferedImage> images = new EnumMap<>(Card.class);
+        for (Card card : Card.values()) {
+            images.put(card, decoded[card.ordinal()]);
+        }
+        return images;
+    }
+
+    private static BufferedImage read(URL url) throws IOException {
+        if (url == null) {
+            throw new IOException("Missing card image");
+        }
+        try (InputStream in = url.openStream()) {
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IOException("Not an image: " + url);
+            }
+            return image;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Packing, at build time */
+    /* ------------------------------------------------------------ */
+
+    /**
+     * Packs every PNG in {@code source} into {@code out}/cards.png, 13 to a
+     * row in file-name order, and writes each one's cell to cards.txt as
+     * "name x y width height".
+     */
+    public static void pack(Path source, Path out) throws IOException {
+        List<Path> pngs;
+        try (Stream<Path> files = Files.list(source)) {
+            pngs = files.filter(f -> f.getFileName().toString().endsWith(".png")).sorted().toList();
+        }
+        BufferedImage[] images = new BufferedImage[pngs.size()];
+        int cellWidth = 0;
+        int cellHeight = 0;
+        for (int i = 0; i < images.length; i++) {
+            images[i] = read(pngs.get(i).toUri().toURL());
+            cellWidth = Math.max(cellWidth, images[i].getWidth());
+            cellHeight = Math.max(cellHeight, images[i].getHeight());
+        }
+        int rows = (images.length + COLUMNS - 1) / COLUMNS;
+        BufferedImage atlas = new BufferedImage(COLUMNS * cellWidth, rows * cellHeight,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        StringBuilder index = new StringBuilder();
+        for (int i = 0; i < images.length; i++) {
+            int x = (i % COLUMNS) * cellWidth;
+            int y = (i / COLUMNS) * cellHeight;
+            g.drawImage(images[i], x, y, null);
+            index.append(pngs.get(i).getFileName()).append(' ').append(x).append(' ').append(y).append(' ')
+                    .append(images[i].getWidth()).append(' ').append(images[i].getHeight()).append('\n');
+        }
+        g.dispose();
+        Files.createDirectories(out);
+        ImageIO.write(atlas, "png", out.resolve("cards.png").toFile());
+        Files.writeString(out.resolve("cards.txt"), index);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CardAtlas SOURCE_DIR OUTPUT_DIR");
+            System.exit(2);
+        }
+        pack(Path.of(args[0]), Path.of(args[1]));
+    }
+}
@@ -0,0 +1,163 @@
+package client;
+
+import java.util.UUID;
+
+/**
+ * Keeps a running count for one session from the successive GameStates the
+ * server returns. Each response repeats every card in play, so the counter
+ * remembers how many player and dealer cards it has already counted this
+ * round and only counts the new ones. The dealer's hole card is counted when
+ * "???" is replaced by a real card. Feed it every state in order.
+ *
+ * The shoe is treated as new when the server raises {@code reshuffled}, when
+ * {@code cardsRemaining} goes up, or when the session changes. Updates are
+ * constant time per new card and don't allocate.
+ */
+public class CardCounter {
+    private final CountingSystem system;
+    private final int decks;
+
+    private UUID sessionId;
+    private int runningCount;
+    private int cardsSeen;
+    private final int[] seenByRank = new int[13];
+    private int cardsRemaining;
+    private boolean lastReshuffled;
+
+    // cards of the current round that are already in the count
+    private int playerCounted;
+    private int dealerCounted;
+    private int hiddenInPlay;
+
+    public CardCounter(CountingSystem system) {
+        this(system, 1);
+    }
+
+    public CardCounter(CountingSystem system, int decks) {
+        this.system = system;
+        this.decks = decks;
+        this.cardsRemaining = decks * 52;
+        resetShoe();
+    }
+
+    public void observe(GameState state) {
+        if (state == null) {
+            return;
+        }
+        if (sessionId == null || !sessionId.equals(state.sessionId)) {
+            sessionId = state.sessionId;
+            resetShoe();
+            playerCounted = 0;
+            dealerCounted = 0;
+        } else if ((state.reshuffled && !lastReshuffled) || state.cardsRemaining > cardsRemaining) {
+            // cards already on the table came from the old shoe; only cards
+            // dealt from here on count against the new one
+            resetShoe();
+        }
+        lastReshuffled = state.reshuffled;
+        cardsRemaining = state.cardsRemaining;
+
+        int players = state.playerCount;
+        int dealers = state.dealerCount;
+        if ("BETTING".equals(state.phase) || players < playerCounted || dealers < dealerCounted) {
+            // a new round
+            playerCounted = 0;
+            dealerCounted = 0;
+        }
+        while (playerCounted < players) {
+            count(state.playerCodes[playerCounted]);
+            playerCounted++;
+        }
+        while (dealerCounted < dealers) {
+            int code = state.dealerCodes[dealerCounted];
+            if (code == Card.HIDDEN_CODE) {
+                break; // count it once it is turned over
+            }
+            count(code);
+            dealerCounted++;
+        }
+        hiddenInPlay = dealers - dealerCounted;
+    }
+
+    private void count(int code) {
+        if (code < 0) {
+            return;
+        }
+        runningCount += system.tag(code);
+        seenByRank[code % 13]++;
+        cardsSeen++;
+    }
+
+    /** Forgets everything counted since the last shuffle. */
+    public void resetShoe() {
+        runningCount = system.initialRunningCount(decks);
+        cardsSeen = 0;
+        for (int i = 0; i < seenByRank.length; i++) {
+            seenByRank[i] = 0;
+        }
+    }
+
+    public CountingSystem getSystem() {
+        return system;
+    }
+
+    public int getDecks() {
+        return decks;
+    }
+
+    public int getRunningCount() {
+        return runningCount;
+    }
+
+    /** Running count per deck left in the shoe, from the server's cardsRemaining. */
+    public double getTrueCount() {
+        // never divide by less than a quarter deck
+        double decksLeft = Math.max(cardsRemaining, 13) / 52.0;
+        return runningCount / decksLeft;
+    }
+
+    public int getCardsSeen() {
+        return cardsSeen;
+    }
+
+    public int getCardsRemaining() {
+        return cardsRemaining;
+    }
+
+    /** Cards of the given {@link Card#rank()} counted since the last shuffle. */
+    public int getSeen(int rank) {
+        return seenByRank[rank];
+    }
+
+    /**
+     * Fills {@code out} with the cards not yet seen, indexed the way
+     * {@link EvCalculator} expects: 0 = ace, 1 to 8 = two to nine, 9 = tens.
+     * Any face-down card is still in there. If the counter missed cards (for
+     * example, it joined a resumed session mid-shoe), the counts are scaled
+     * to match what the server says is left.
+     */
+    public void unseenByPoints(int[] out) {
+        int unseen = 0;
+        for (int i = 0; i < 10; i++) {
+            out[i] = 0;
+        }
+        for (int rank = 0; rank < 13; rank++) {
+            int left = Math.max(0, 4 * decks - seenByRank[rank]);
+            out[Card.points(rank) - 1] += left;
+            unseen += left;
+        }
+        int expected = cardsRemaining + hiddenInPlay;
+        if (unseen > expected && unseen > 0) {
+            double scale = expected / (double) unseen;
+            for (int i = 0; i < 10; i++) {
+                out[i] = (int) Math.round(out[i] * scale);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return system + " running " + runningCount + ", true " + String.format("%.2f", getTrueCount())
+                + ", seen " + cardsSeen + ", remaining " + cardsRemaining;
+    }
+}
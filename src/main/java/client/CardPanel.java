@@ -1,95 +1,201 @@
 package client;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import java.awt.Color;
 import java.awt.Graphics;
-
-public class CardPanel extends JPanel 
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the dealer's and player's hands. Cards come from {@link CardSprites},
+ * pre-scaled to the current size, and only the part of the panel that
+ * changed is repainted. Adding a card repaints that card's rectangle, and
+ * clearing a hand repaints the row it occupied. The layout is designed for a
+ * 1000x800 window and grows with it when resized.
+ */
+public class CardPanel extends JPanel
 {
     private static final long serialVersionUID = 1L;
 
+    private static final int DESIGN_WIDTH = 1000;
+    private static final int DESIGN_HEIGHT = 800;
+    private static final int CARD_WIDTH = 68;
+    private static final int CARD_HEIGHT = 100;
+    private static final int GAP = 10;
+    private static final int LEFT = 100;
+    private static final int DEALER_TOP = 100;
+    private static final int PLAYER_TOP = 500;
+
     private JButton hitButton;
     private JButton standButton;
 
     private List<Card> dealerCards = new ArrayList<>();
     private List<Card> playerCards = new ArrayList<>();
-    private Map<Card, ImageIcon> cardImages;
-    //private Random random;
+    private transient CardSprites sprites;
+    private double scale = 1;
+
+    public CardPanel(JButton hitButton, JButton standButton, Map<Card, BufferedImage> cardImages)
+    {
+        this(hitButton, standButton, CompletableFuture.completedFuture(cardImages));
+    }
 
-    public CardPanel(JButton hitButton, JButton standButton, Map<Card, ImageIcon> cardImages)
+    /** Card images may still be loading; cards are drawn once they arrive. */
+    public CardPanel(JButton hitButton, JButton standButton, CompletableFuture<Map<Card, BufferedImage>> cardImages)
     {
         this.hitButton = hitButton;
         this.standButton = standButton;
-        this.cardImages = cardImages;
+        this.sprites = new CardSprites(cardImages);
+        if (!cardImages.isDone()) {
+            cardImages.thenRun(new Runnable() {
+                @Override
+                public void run() {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            repaint();
+                        }
+                    });
+                }
+            });
+        }
 
         // null layout manager is absolute positioning
         setLayout(null);
         setBackground(Color.GREEN.darker());
 
-        //loadCards();
-
         // add a hit and stand button
         // the actual click handler is defined in the BlackjackGUI class
         hitButton.setBounds(50, 600, 100, 60);
         add(hitButton);
-        
+
         standButton.setBounds(200, 600, 100, 60);
         add(standButton);
 
+        // the layout scales with the window; never smaller than designed
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                double newScale = Math.max(1.0,
+                        Math.min(getWidth() / (double) DESIGN_WIDTH, getHeight() / (double) DESIGN_HEIGHT));
+                if (newScale != scale) {
+                    scale = newScale;
+                    repaint();
+                }
+            }
+        });
     }
 
     public void clearCards() {
+        repaint(rowBounds(DEALER_TOP, dealerCards.size()));
+        repaint(rowBounds(PLAYER_TOP, playerCards.size()));
         dealerCards.clear();
         playerCards.clear();
     }
 
     public void addDealerCard(Card card) {
-        dealerCards.add(card);
+        add(dealerCards, DEALER_TOP, card);
     }
 
     public void addPlayerCard(Card card) {
-        playerCards.add(card);
+        add(playerCards, PLAYER_TOP, card);
+    }
+
+    /** Shows this dealer hand, drawing only the cards not already on the table. */
+    public void setDealerCards(List<Card> cards) {
+        set(dealerCards, DEALER_TOP, cards);
+    }
+
+    /** Shows this player hand, drawing only the cards not already on the table. */
+    public void setPlayerCards(List<Card> cards) {
+        set(playerCards, PLAYER_TOP, cards);
+    }
+
+    // a null card (the dealer's hidden one) takes no space, as before
+    private void add(List<Card> hand, int top, Card card) {
+        if (card == null) {
+            return;
+        }
+        hand.add(card);
+        repaint(cardBounds(top, hand.size() - 1));
+    }
+
+    private void set(List<Card> hand, int top, List<Card> cards) {
+        int shared = 0;
+        while (shared < hand.size() && shared < cards.size() && hand.get(shared) == cards.get(shared)) {
+            shared++;
+        }
+        if (shared < hand.size()) {
+            // a different hand, not a longer one: redraw the whole row
+            repaint(rowBounds(top, hand.size()));
+            hand.clear();
+            shared = 0;
+        }
+        for (int i = shared; i < cards.size(); i++) {
+            add(hand, top, cards.get(i));
+        }
+    }
+
+    private Rectangle cardBounds(int top, int index) {
+        int x = (int) Math.floor((LEFT + index * (CARD_WIDTH + GAP)) * scale);
+        int y = (int) Math.floor(top * scale);
+        return new Rectangle(x, y, (int) Math.ceil(CARD_WIDTH * scale) + 1, (int) Math.ceil(CARD_HEIGHT * scale) + 1);
+    }
+
+    private Rectangle rowBounds(int top, int cards) {
+        if (cards == 0) {
+            return new Rectangle();
+        }
+        return cardBounds(top, 0).union(cardBounds(top, cards - 1));
     }
 
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
+        paintHand((Graphics2D) g, dealerCards, DEALER_TOP);
+        paintHand((Graphics2D) g, playerCards, PLAYER_TOP);
+    }
 
-        int x = 100;
-        int y = 100;
-        // dealer cards
-        for (Card card : dealerCards) {
-            // Draw dealer cards
-            //System.out.println("Drawing dealer card: " + card);
-            ImageIcon cardImage = cardImages.get(card);
-            if (cardImage != null) {
-                System.out.println("Drawing dealer card: " + card);
-                g.drawImage(cardImage.getImage(), x, y, null);
-                x += cardImage.getIconWidth() + 10; 
+    private void paintHand(Graphics2D g, List<Card> hand, int top) {
+        Rectangle clip = g.getClipBounds();
+        // device pixels per unit, 2.0 on a typical HiDPI screen
+        AffineTransform device = g.getTransform();
+        int width = (int) Math.round(CARD_WIDTH * scale);
+        int height = (int) Math.round(CARD_HEIGHT * scale);
+        int pixelWidth = (int) Math.round(width * device.getScaleX());
+        int pixelHeight = (int) Math.round(height * device.getScaleY());
+        for (int i = 0; i < hand.size(); i++) {
+            Rectangle bounds = cardBounds(top, i);
+            if (clip != null && !clip.intersects(bounds)) {
+                continue;
             }
-        }
-
-        // player cards
-        x = 100; 
-        y = 500;
-        for (Card card : playerCards) {
-            System.out.println("Drawing player card: " + card);
-            // Draw player cards
-            ImageIcon cardImage = cardImages.get(card);
-            if (cardImage != null) {
-                g.drawImage(cardImage.getImage(), x, y, null);
-                x += cardImage.getIconWidth() + 10; 
+            BufferedImage sprite = sprites.get(hand.get(i), pixelWidth, pixelHeight, g.getDeviceConfiguration());
+            if (sprite != null) {
+                g.drawImage(sprite, bounds.x, bounds.y, width, height, null);
+            } else {
+                paintPlaceholder(g, hand.get(i), bounds.x, bounds.y, width, height);
             }
         }
-    }        
-    
+    }
+
+    // a plain card with its name, for when there is no image (still loading, or failed to load)
+    private void paintPlaceholder(Graphics2D g, Card card, int x, int y, int width, int height) {
+        int arc = width / 8;
+        g.setColor(Color.WHITE);
+        g.fillRoundRect(x, y, width - 1, height - 1, arc, arc);
+        g.setColor(Color.DARK_GRAY);
+        g.drawRoundRect(x, y, width - 1, height - 1, arc, arc);
+        g.drawString(card.toString(), x + arc / 2 + 2, y + g.getFontMetrics().getAscent() + arc / 2);
+    }
 }
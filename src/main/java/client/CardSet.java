@@ -0,0 +1,133 @@
+package client;
+
+/**
+ * A set of cards from a single deck packed into one {@code long}: bit
+ * {@code n} is the card with {@link Card#ordinal()} {@code n}. The static
+ * methods work on raw {@code long}s, so callers can keep sets in fields or
+ * arrays with no objects at all. Instances wrap one mutable set.
+ */
+public final class CardSet {
+    public static final long EMPTY = 0L;
+    public static final long FULL_DECK = (1L << 52) - 1;
+
+    // RANK_MASKS[r] has the four bits of rank r, one per suit
+    private static final long[] RANK_MASKS = new long[13];
+    static {
+        for (int rank = 0; rank < 13; rank++) {
+            for (int suit = 0; suit < 4; suit++) {
+                RANK_MASKS[rank] |= 1L << (suit * 13 + rank);
+            }
+        }
+    }
+
+    private long bits;
+
+    public CardSet() {
+    }
+
+    public CardSet(long bits) {
+        this.bits = bits;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Primitive operations */
+    /* ------------------------------------------------------------ */
+    public static long bit(int code) {
+        return 1L << code;
+    }
+
+    public static long with(long set, int code) {
+        return set | (1L << code);
+    }
+
+    public static long without(long set, int code) {
+        return set & ~(1L << code);
+    }
+
+    public static boolean contains(long set, int code) {
+        return (set & (1L << code)) != 0;
+    }
+
+    public static int size(long set) {
+        return Long.bitCount(set);
+    }
+
+    /** How many cards of the given rank are in the set. */
+    public static int countRank(long set, int rank) {
+        return Long.bitCount(set & RANK_MASKS[rank]);
+    }
+
+    /** Lowest card code in the set at or above {@code from}, or -1. */
+    public static int next(long set, int from) {
+        if (from >= 52) {
+            return -1;
+        }
+        long rest = set & (-1L << from);
+        return rest == 0 ? -1 : Long.numberOfTrailingZeros(rest);
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Mutable wrapper */
+    /* ------------------------------------------------------------ */
+
+    /** Adds a card; returns false if it was already there. */
+    public boolean add(int code) {
+        long before = bits;
+        bits |= 1L << code;
+        return bits != before;
+    }
+
+    public boolean add(Card card) {
+        return add(card.ordinal());
+    }
+
+    public boolean remove(int code) {
+        long before = bits;
+        bits &= ~(1L << code);
+        return bits != before;
+    }
+
+    public boolean contains(int code) {
+        return contains(bits, code);
+    }
+
+    public boolean contains(Card card) {
+        return contains(bits, card.ordinal());
+    }
+
+    public int size() {
+        return Long.bitCount(bits);
+    }
+
+    public int countRank(int rank) {
+        return countRank(bits, rank);
+    }
+
+    public boolean isEmpty() {
+        return bits == 0;
+    }
+
+    public void clear() {
+        bits = 0;
+    }
+
+    public long bits() {
+        return bits;
+    }
+
+    public void set(long bits) {
+        this.bits = bits & FULL_DECK;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int code = next(bits, 0); code >= 0; code = next(bits, code + 1)) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(Card.of(code));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,83 @@
+package client;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Card images scaled once to the size they are drawn at, in the display's
+ * own pixel format. Java2D keeps such images in video memory, so painting a
+ * card is a straight copy with no per-paint scaling or format conversion.
+ *
+ * Sprites are sized in device pixels. On a 2x HiDPI screen a card drawn 68
+ * units wide gets a 136-pixel sprite, so it stays sharp. A new size (after a
+ * resize, or on another screen) re-scales from the decoded originals and
+ * never decodes again. Only one size is kept. Use it on the EDT.
+ *
+ * If the images failed to load, that is logged once and every card comes
+ * back null, so paint draws placeholders rather than throwing.
+ */
+class CardSprites {
+    private static final Log LOG = Log.get(CardSprites.class);
+
+    private final CompletableFuture<Map<Card, BufferedImage>> originals;
+    private final Map<Card, BufferedImage> scaled = new EnumMap<>(Card.class);
+    private GraphicsConfiguration config;
+    private int width;
+    private int height;
+    private boolean failureLogged;
+
+    CardSprites(CompletableFuture<Map<Card, BufferedImage>> originals) {
+        this.originals = originals;
+    }
+
+    /**
+     * The card at this many device pixels, or null if there is no image for
+     * it, the images are still loading, or they failed to load.
+     */
+    BufferedImage get(Card card, int width, int height, GraphicsConfiguration config) {
+        if (width != this.width || height != this.height || config != this.config) {
+            scaled.clear();
+            this.width = width;
+            this.height = height;
+            this.config = config;
+        }
+        BufferedImage sprite = scaled.get(card);
+        if (sprite == null) {
+            if (!originals.isDone()) {
+                return null;
+            }
+            if (originals.isCompletedExceptionally()) {
+                if (!failureLogged) {
+                    failureLogged = true;
+                    LOG.error("Cannot load card images; drawing placeholders", originals.exceptionNow());
+                }
+                return null;
+            }
+            BufferedImage original = originals.join().get(card);
+            if (original == null) {
+                return null;
+            }
+            sprite = scale(original);
+            scaled.put(card, sprite);
+        }
+        return sprite;
+    }
+
+    private BufferedImage scale(BufferedImage original) {
+        BufferedImage sprite = config != null
+                ? config.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = sprite.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(original, 0, 0, width, height, null);
+        g.dispose();
+        return sprite;
+    }
+}
@@ -1,111 +1,698 @@
 package client;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
-import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 public class ClientConnecter {
+    private static final Log LOG = Log.get(ClientConnecter.class);
+
+    public static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+    // until an endpoint has enough samples for a p95, hedge after this long
+    public static final Duration DEFAULT_HEDGE_DELAY = Duration.ofMillis(250);
+
+    // one shared pool for the HttpClient's own I/O and completion callbacks;
+    // sized to the machine, not to the number of sessions in flight
+    private static final ExecutorService SHARED_EXECUTOR = newExecutor(
+            Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    // response bodies are decoded as they stream in, which blocks on the socket;
+    // that must not tie up the HttpClient's own threads, so it runs on virtual threads
+    private static final ExecutorService DECODE_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final Type SESSION_LIST = new TypeToken<List<SessionSummary>>() {
+    }.getType();
+
     private final String baseUrl;
     private final String username;
     private final String password;
     private final HttpClient client;
     private final String params;
 
+    private final Map<Endpoint, Duration> budgets = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LatencyTracker> latencies = new EnumMap<>(Endpoint.class);
+    private volatile boolean hedging;
+    private final LongAdder hedgesSent = new LongAdder();
+    private volatile ClientMetrics metrics = new ClientMetrics();
+    private volatile StateListener stateListener;
+    private volatile boolean reuseStates;
+    private volatile TokenBucket rateLimit;
+    private volatile ConcurrencyLimiter limiter;
+    private final LongAdder throttledNanos = new LongAdder();
+    private final Map<UUID, GameStateDecoder> decoders = new ConcurrentHashMap<>();
+
+    /** A connecter on the HttpClient that every connecter built this way shares. */
     public ClientConnecter(String baseUrl, String username, String password) {
+        this(baseUrl, username, password, DefaultClient.CLIENT);
+    }
+
+    public ClientConnecter(String baseUrl, String username, String password, HttpClient client) {
         this.baseUrl = baseUrl;
         this.username = username;
         this.password = password;
-        this.client = HttpClient.newHttpClient();
+        this.client = client;
         this.params = "?username=" + username + "&password=" + password;
+        for (Endpoint endpoint : Endpoint.values()) {
+            budgets.put(endpoint, endpoint.getDefaultBudget());
+            latencies.put(endpoint, new LatencyTracker());
+        }
     }
 
-    public List<SessionSummary> listSessions() throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/sessions/" + username + "?password=" + password))
-                .GET()
-                .build();
+    // built on first use, so a connecter given its own client never starts this one
+    private static final class DefaultClient {
+        static final HttpClient CLIENT = newHttpClient(SHARED_EXECUTOR);
+    }
 
-        HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-        return JsonUtil.GSON.fromJson(response.body(), new TypeToken<List<SessionSummary>>() {
-        }.getType());
+    /**
+     * A new client on the shared I/O pool, with its own connection pool. Pass
+     * it to every connecter in a group (one per account, say) to keep that
+     * group's connections apart from the default client's.
+     */
+    public static HttpClient newHttpClient() {
+        return newHttpClient(SHARED_EXECUTOR);
     }
 
-    public GameState newGame(UUID sessionId) throws Exception {
-        System.out.println(baseUrl + "/" + sessionId + "/reset" + params);
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/" + sessionId + "/reset" + params))
-                .POST(HttpRequest.BodyPublishers.noBody())
+    /**
+     * Builds a client the way the shared default one is built. HTTP/2 is
+     * preferred and falls back to HTTP/1.1 with keep-alive, so repeated calls
+     * against the same server reuse pooled connections instead of reconnecting.
+     * Each client has its own connection pool and selector thread.
+     */
+    public static HttpClient newHttpClient(ExecutorService executor) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(executor)
                 .build();
-        HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-        return GameState.fromJson(response.body());
     }
 
-    public void finishGame(UUID sessionId) throws Exception {
-        System.out.println("I should save the game now");
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/" + sessionId + "/finish" + params))
-                .POST(HttpRequest.BodyPublishers.noBody())
-                .build();
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "blackjack-http-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Budgets and hedging */
+    /* ------------------------------------------------------------ */
 
-        client.send(request, BodyHandlers.ofString());
-        System.out.println("Game should be saved at this point");
+    /** How long a call to this endpoint may take before it fails with a timeout. */
+    public void setBudget(Endpoint endpoint, Duration budget) {
+        budgets.put(endpoint, budget);
     }
 
-    public GameState startGame() throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/start" + params))
-                .POST(HttpRequest.BodyPublishers.noBody())
-                .build();
-        System.out.println("Request: " + request);
-        HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-        return GameState.fromJson(response.body());
+    public Duration getBudget(Endpoint endpoint) {
+        return budgets.get(endpoint);
     }
 
-    public GameState placeBet(UUID sessionId, int amount) throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/" + sessionId + "/bet/" + amount + params))
-                .POST(HttpRequest.BodyPublishers.noBody())
-                .build();
+    /**
+     * Turns on hedging for idempotent endpoints (resume and sessions). When an
+     * attempt is still running after that endpoint's recent p95, a second one
+     * is sent and whichever answers first wins. Mutating calls are never hedged.
+     */
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
 
-        HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-        return GameState.fromJson(response.body());
+    public long getHedgesSent() {
+        return hedgesSent.sum();
     }
 
-    public GameState hit(UUID sessionId) throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/" + sessionId + "/hit" + params))
+    public LatencyTracker getLatency(Endpoint endpoint) {
+        return latencies.get(endpoint);
+    }
+
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Records into these metrics from now on, e.g. one instance shared by many connecters. */
+    public void setMetrics(ClientMetrics metrics) {
+        metrics.setLimiter(limiter);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sends every request through this limiter, which finds how many the
+     * server can take at once and queues the rest; null to send everything
+     * at once. Share one limiter between connecters that use the same
+     * server. It applies after the rate limit: a request first waits for a
+     * token, then for a slot. The latencies in the metrics include the wait
+     * for a slot, since the caller waits through it too, and so does the
+     * endpoint's budget: a request still queued when it runs out fails with
+     * an {@link HttpTimeoutException}.
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+        metrics.setLimiter(limiter);
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Limits this connecter to {@code requestsPerSecond}, with bursts of up
+     * to {@code burst}; 0 removes the limit. Every attempt takes a token,
+     * hedges included. A request over the limit is sent later, from a timer,
+     * so no thread waits for it.
+     */
+    public void setRateLimit(double requestsPerSecond, int burst) {
+        this.rateLimit = requestsPerSecond > 0 ? new TokenBucket(requestsPerSecond, burst) : null;
+    }
+
+    /** Total time requests have been held back by the rate limit. */
+    public long getThrottledNanos() {
+        return throttledNanos.sum();
+    }
+
+    /** Told about every game state this connecter receives, e.g. to keep a {@link HandHistory}. */
+    public interface StateListener {
+        void onState(Endpoint endpoint, GameState state);
+    }
+
+    /**
+     * Calls the listener with each state the server sends back, on the thread
+     * that decoded it and before the caller's own continuations run. Pass
+     * null to stop.
+     */
+    public void setStateListener(StateListener listener) {
+        this.stateListener = listener;
+    }
+
+    /**
+     * Turns on in-place decoding. Each session then gets one GameState, and
+     * every bet, hit, stand and reset for it refills that same object instead
+     * of allocating a new one. The state a call returns is overwritten by the
+     * next call for the session, so the caller must be done with it by then,
+     * as a bot that reads each state once is. Resume answers always come as
+     * a fresh object, since a hedged resume may decode two bodies at once.
+     * A session's decoder is dropped when it is finished, and also when a
+     * call for it fails, since callers often abandon a failed session
+     * without finishing it. Off by default.
+     */
+    public void setReuseStates(boolean reuseStates) {
+        this.reuseStates = reuseStates;
+        if (!reuseStates) {
+            decoders.clear();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Plumbing */
+    /* ------------------------------------------------------------ */
+    private interface Decoder<T> {
+        T decode(InputStream body) throws IOException;
+    }
+
+    private HttpRequest post(Endpoint endpoint, String path) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path + params))
+                .timeout(budgets.get(endpoint))
                 .POST(HttpRequest.BodyPublishers.noBody())
                 .build();
+    }
 
-        HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-        return GameState.fromJson(response.body());
+    private CompletableFuture<GameState> postForState(Endpoint endpoint, String path, UUID sessionId) {
+        CompletableFuture<GameState> state = call(endpoint, post(endpoint, path), stateDecoder(endpoint, sessionId));
+        if (sessionId != null && reuseStates) {
+            // a failed session may never be finished; a retry just starts a new decoder
+            state = state.whenComplete((s, error) -> {
+                if (error != null) {
+                    decoders.remove(sessionId);
+                }
+            });
+        }
+        StateListener listener = stateListener;
+        if (listener == null) {
+            return state;
+        }
+        // after call() so a hedged request is reported once, for the attempt that won
+        return state.thenApply(s -> {
+            listener.onState(endpoint, s);
+            return s;
+        });
     }
 
-    public GameState stand(UUID sessionId) throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/" + sessionId + "/stand" + params))
-                .POST(HttpRequest.BodyPublishers.noBody())
+    private Decoder<GameState> stateDecoder(Endpoint endpoint, UUID sessionId) {
+        if (!reuseStates || endpoint.isIdempotent()) {
+            return GameState::fromJson;
+        }
+        if (sessionId != null) {
+            return decoders.computeIfAbsent(sessionId, id -> new GameStateDecoder())::decode;
+        }
+        // a new session: its id is only known once the answer is decoded
+        GameStateDecoder pooled = new GameStateDecoder();
+        return body -> {
+            GameState state = pooled.decode(body);
+            if (state.sessionId != null) {
+                decoders.putIfAbsent(state.sessionId, pooled);
+            }
+            return state;
+        };
+    }
+
+    private <T> CompletableFuture<T> call(Endpoint endpoint, HttpRequest request, Decoder<T> decoder) {
+        if (hedging && endpoint.isIdempotent()) {
+            return hedged(endpoint, request, decoder);
+        }
+        Attempt<T> attempt = new Attempt<>();
+        start(endpoint, request, decoder, attempt);
+        return attempt.result;
+    }
+
+    /**
+     * One try at a request. It keeps the HttpClient's own future for the
+     * exchange, so {@link #cancel()} aborts the request on the wire (freeing
+     * its connection and limiter slot), not just a stage derived from it.
+     */
+    private static final class Attempt<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        private volatile boolean cancelled;
+        private volatile CompletableFuture<?> exchange;
+
+        void cancel() {
+            cancelled = true;
+            CompletableFuture<?> e = exchange;
+            if (e != null) {
+                e.cancel(true);
+            }
+            result.cancel(false);
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        // publish first, then look: either this or cancel() sees the other
+        void sent(CompletableFuture<?> e) {
+            exchange = e;
+            if (cancelled) {
+                e.cancel(true);
+            }
+        }
+
+        void finish(T value, Throwable error) {
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        }
+    }
+
+    private <T> void start(Endpoint endpoint, HttpRequest request, Decoder<T> decoder, Attempt<T> attempt) {
+        if (attempt.isCancelled()) {
+            return;
+        }
+        TokenBucket bucket = rateLimit;
+        long wait = bucket == null ? 0 : bucket.reserve();
+        if (wait <= 0) {
+            send(endpoint, request, decoder, attempt);
+            return;
+        }
+        throttledNanos.add(wait);
+        // the request's timeout starts when it is sent, so the wait doesn't eat its budget
+        CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, SHARED_EXECUTOR).execute(() -> {
+            if (attempt.isCancelled()) {
+                bucket.refund(); // a hedge that lost while it waited for its token
+                return;
+            }
+            send(endpoint, request, decoder, attempt);
+        });
+    }
+
+    private <T> void send(Endpoint endpoint, HttpRequest request, Decoder<T> decoder, Attempt<T> attempt) {
+        // the caller's latency includes any wait for the limiter; the limiter's own doesn't
+        long queued = System.nanoTime();
+        ConcurrencyLimiter l = limiter;
+        if (l == null) {
+            exchange(endpoint, request, decoder, null, attempt, queued);
+            return;
+        }
+        // the budget runs from here, so a request can't wait out its whole budget in the queue
+        // and then spend it again on the wire; whichever of admission and expiry comes first wins
+        AtomicBoolean settled = new AtomicBoolean();
+        l.execute(() -> {
+            if (attempt.isCancelled() || !settled.compareAndSet(false, true)) {
+                l.release(); // a hedge that lost, or a request that expired, while it was queued
+                return;
+            }
+            long left = remaining(request, queued);
+            if (left <= 0) {
+                l.release();
+                expire(endpoint, attempt);
+                return;
+            }
+            exchange(endpoint, withTimeout(request, left), decoder, l, attempt, queued);
+        });
+        if (!settled.get() && request.timeout().isPresent()) {
+            // queued: fail it if the budget runs out before a slot frees
+            CompletableFuture.delayedExecutor(remaining(request, queued), TimeUnit.NANOSECONDS, SHARED_EXECUTOR)
+                    .execute(() -> {
+                        if (settled.compareAndSet(false, true)) {
+                            expire(endpoint, attempt);
+                        }
+                    });
+        }
+    }
+
+    // nanos of the request's timeout left after waiting since queued; no timeout never runs out
+    private static long remaining(HttpRequest request, long queued) {
+        return request.timeout().map(t -> t.toNanos() - (System.nanoTime() - queued)).orElse(Long.MAX_VALUE);
+    }
+
+    private static HttpRequest withTimeout(HttpRequest request, long nanos) {
+        if (nanos == Long.MAX_VALUE || request.timeout().get().toNanos() - nanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+            return request; // barely waited; not worth a copy
+        }
+        return HttpRequest.newBuilder(request, (name, value) -> true).timeout(Duration.ofNanos(nanos)).build();
+    }
+
+    private <T> void expire(Endpoint endpoint, Attempt<T> attempt) {
+        metrics.recordError(endpoint);
+        attempt.finish(null, new HttpTimeoutException(endpoint.getLabel() + " timed out waiting for a request slot"));
+    }
+
+    private <T> void exchange(Endpoint endpoint, HttpRequest request, Decoder<T> decoder, ConcurrencyLimiter l,
+            Attempt<T> attempt, long queued) {
+        ClientMetrics m = metrics;
+        m.recordRequest(endpoint);
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> response = client.sendAsync(request,
+                BodyHandlers.ofInputStream());
+        if (l != null) {
+            // judged on the headers, which is the server's part; the body is ours to decode
+            response.whenComplete((r, error) -> {
+                long nanos = System.nanoTime() - start;
+                if (error != null && unwrap(error) instanceof CancellationException) {
+                    l.release(); // called off by a hedge, says nothing about the server
+                } else if (error != null || r.statusCode() == 429 || r.statusCode() >= 500) {
+                    l.onDropped(start);
+                } else {
+                    l.onSuccess(endpoint, start, nanos);
+                }
+            });
+        }
+        response.thenApplyAsync(r -> decode(endpoint, r, decoder, m), DECODE_EXECUTOR)
+                .whenComplete((result, error) -> {
+                    if (error == null) {
+                        long nanos = System.nanoTime() - queued;
+                        latencies.get(endpoint).record(nanos);
+                        m.recordLatency(endpoint, nanos);
+                    } else if (!(unwrap(error) instanceof CancellationException)) {
+                        m.recordError(endpoint);
+                    }
+                    attempt.finish(result, error);
+                });
+        attempt.sent(response);
+    }
+
+    private static <T> T decode(Endpoint endpoint, HttpResponse<InputStream> response, Decoder<T> decoder,
+            ClientMetrics m) {
+        CountingInputStream body = new CountingInputStream(response.body());
+        try (body) {
+            int status = response.statusCode();
+            if (status < 200 || status > 299) {
+                throw new IOException(endpoint.getLabel() + " failed with HTTP " + status + ": " + errorText(body));
+            }
+            long start = System.nanoTime();
+            T result = decoder.decode(body);
+            m.recordDecode(System.nanoTime() - start);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            m.recordBytes(endpoint, body.count);
+        }
+    }
+
+    // the start of an error body, for the exception message
+    private static String errorText(InputStream body) throws IOException {
+        byte[] bytes = body.readNBytes(200);
+        return new String(bytes, StandardCharsets.UTF_8).trim();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Sends one attempt, and a second if the first hasn't answered within the
+     * endpoint's p95. The first success wins and the other attempt's exchange
+     * is aborted; the call fails only once every attempt sent has failed.
+     */
+    private <T> CompletableFuture<T> hedged(Endpoint endpoint, HttpRequest request, Decoder<T> decoder) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+        Attempt<T> first = new Attempt<>();
+        AtomicReference<Attempt<T>> second = new AtomicReference<>();
+
+        first.result.whenComplete((value, error) -> settle(result, value, error, pending, firstError, second.get()));
+        start(endpoint, request, decoder, first);
+
+        long p95 = latencies.get(endpoint).getP95Nanos();
+        long delay = p95 > 0 ? p95 : DEFAULT_HEDGE_DELAY.toNanos();
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, SHARED_EXECUTOR).execute(() -> {
+            pending.incrementAndGet();
+            if (result.isDone() || first.result.isDone()) {
+                // the first attempt settled meanwhile; if it failed, this may be the last word
+                if (pending.decrementAndGet() == 0 && firstError.get() != null) {
+                    result.completeExceptionally(firstError.get());
+                }
+                return;
+            }
+            hedgesSent.increment();
+            Attempt<T> hedge = new Attempt<>();
+            // published before it starts, so a first attempt that wins from here on cancels it
+            second.set(hedge);
+            hedge.result.whenComplete((value, error) -> settle(result, value, error, pending, firstError, first));
+            start(endpoint, request, decoder, hedge);
+            if (result.isDone()) {
+                // the first won between the check above and second.set, and found nothing to cancel
+                hedge.cancel();
+            }
+        });
+        return result;
+    }
+
+    private static <T> void settle(CompletableFuture<T> result, T value, Throwable error, AtomicInteger pending,
+            AtomicReference<Throwable> firstError, Attempt<T> other) {
+        if (error == null) {
+            if (result.complete(value) && other != null) {
+                other.cancel();
+            }
+            return;
+        }
+        firstError.compareAndSet(null, error);
+        if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(firstError.get());
+        }
+    }
+
+    /**
+     * Waits for an async call and rethrows its cause, so the blocking methods
+     * keep throwing the same exceptions they did before the async API existed.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static List<SessionSummary> decodeSessions(InputStream body) throws IOException {
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            return JsonUtil.GSON.fromJson(reader, SESSION_LIST);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Async API */
+    /* ------------------------------------------------------------ */
+    private HttpRequest sessionsRequest() {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + "/sessions/" + username + "?password=" + password))
+                .timeout(budgets.get(Endpoint.SESSIONS))
+                .GET()
                 .build();
+    }
 
-        HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-        return GameState.fromJson(response.body());
+    public CompletableFuture<List<SessionSummary>> listSessionsAsync() {
+        return call(Endpoint.SESSIONS, sessionsRequest(), ClientConnecter::decodeSessions);
     }
 
-    public GameState resumeSession(UUID sessionId) throws Exception {
-        System.out.println("I am inside resume session with the session id: " + sessionId);
+    /** The same list as {@link #listSessionsAsync()}, decoded straight into columns. */
+    public CompletableFuture<SessionIndex> listSessionIndexAsync() {
+        return call(Endpoint.SESSIONS, sessionsRequest(), SessionIndex::decode);
+    }
+
+    /**
+     * Opens a pooled connection to the server ahead of the first real call,
+     * so that call doesn't pay for the TCP (and TLS) setup. Any status counts.
+     */
+    public CompletableFuture<Void> warmUpAsync() {
         HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/resume/" + sessionId + params))
-                .POST(HttpRequest.BodyPublishers.noBody())
+                .uri(URI.create(baseUrl))
+                .timeout(CONNECT_TIMEOUT)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
                 .build();
+        return client.sendAsync(request, BodyHandlers.discarding()).thenApply(response -> null);
+    }
 
-        HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
-        return new Gson().fromJson(response.body(), GameState.class);
+    public CompletableFuture<GameState> newGameAsync(UUID sessionId) {
+        LOG.debug("reset {}", sessionId);
+        return postForState(Endpoint.RESET, "/" + sessionId + "/reset", sessionId);
+    }
+
+    public CompletableFuture<Void> finishGameAsync(UUID sessionId) {
+        LOG.debug("finish {}", sessionId);
+        decoders.remove(sessionId);
+        return call(Endpoint.FINISH, post(Endpoint.FINISH, "/" + sessionId + "/finish"), body -> null)
+                .thenAccept(ignored -> LOG.debug("saved {}", sessionId));
+    }
+
+    public CompletableFuture<GameState> startGameAsync() {
+        // not the request itself: its URI carries the password
+        LOG.debug("start for {}", username);
+        return postForState(Endpoint.START, "/start", null);
+    }
+
+    public CompletableFuture<GameState> placeBetAsync(UUID sessionId, int amount) {
+        return postForState(Endpoint.BET, "/" + sessionId + "/bet/" + amount, sessionId);
+    }
+
+    public CompletableFuture<GameState> hitAsync(UUID sessionId) {
+        return postForState(Endpoint.HIT, "/" + sessionId + "/hit", sessionId);
+    }
+
+    public CompletableFuture<GameState> standAsync(UUID sessionId) {
+        return postForState(Endpoint.STAND, "/" + sessionId + "/stand", sessionId);
+    }
+
+    public CompletableFuture<GameState> resumeSessionAsync(UUID sessionId) {
+        LOG.debug("resume {}", sessionId);
+        return postForState(Endpoint.RESUME, "/resume/" + sessionId, sessionId);
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Blocking API */
+    /* ------------------------------------------------------------ */
+    public List<SessionSummary> listSessions() throws Exception {
+        return await(listSessionsAsync());
+    }
+
+    public SessionIndex listSessionIndex() throws Exception {
+        return await(listSessionIndexAsync());
+    }
+
+    public GameState newGame(UUID sessionId) throws Exception {
+        return await(newGameAsync(sessionId));
+    }
+
+    public void finishGame(UUID sessionId) throws Exception {
+        await(finishGameAsync(sessionId));
+    }
+
+    public GameState startGame() throws Exception {
+        return await(startGameAsync());
+    }
+
+    public GameState placeBet(UUID sessionId, int amount) throws Exception {
+        return await(placeBetAsync(sessionId, amount));
+    }
+
+    public GameState hit(UUID sessionId) throws Exception {
+        return await(hitAsync(sessionId));
+    }
+
+    public GameState stand(UUID sessionId) throws Exception {
+        return await(standAsync(sessionId));
+    }
+
+    public GameState resumeSession(UUID sessionId) throws Exception {
+        return await(resumeSessionAsync(sessionId));
     }
 }
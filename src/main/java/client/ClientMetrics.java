@@ -0,0 +1,249 @@
+package client;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * What a {@link ClientConnecter} has done: per endpoint, requests sent,
+ * errors (failed sends, timeouts and non-2xx answers), bytes received, and a
+ * {@link LatencyHistogram} of successful calls. It also keeps a histogram of
+ * body decode time. Everything is lock-free counters, so it stays on in
+ * production runs. When the connecter has a {@link ConcurrencyLimiter}, its
+ * current limit is reported here too, and latencies include the time a
+ * request waited for it.
+ *
+ * One instance can be shared by several connecters to get combined numbers.
+ * {@link #register(String)} publishes it over JMX as
+ * {@code client:type=ClientMetrics,name=...}, with one bean per endpoint
+ * alongside it.
+ */
+public class ClientMetrics implements ClientMetricsMXBean {
+    private final Map<Endpoint, EndpointMetrics> endpoints = new EnumMap<>(Endpoint.class);
+    private final LatencyHistogram decode = new LatencyHistogram();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private volatile ConcurrencyLimiter limiter;
+
+    public ClientMetrics() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            endpoints.put(endpoint, new EndpointMetrics());
+        }
+    }
+
+    /** One endpoint's numbers. */
+    public static final class EndpointMetrics implements EndpointMetricsMXBean {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public long getBytesReceived() {
+            return bytes.sum();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return latency.getMean() / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return latency.getValueAtPercentile(50) / 1e6;
+        }
+
+        @Override
+        public double getP90Millis() {
+            return latency.getValueAtPercentile(90) / 1e6;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return latency.getValueAtPercentile(99) / 1e6;
+        }
+
+        @Override
+        public double getP999Millis() {
+            return latency.getValueAtPercentile(99.9) / 1e6;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return latency.getMax() / 1e6;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Recording */
+    /* ------------------------------------------------------------ */
+    void recordRequest(Endpoint endpoint) {
+        endpoints.get(endpoint).requests.increment();
+    }
+
+    void recordLatency(Endpoint endpoint, long nanos) {
+        endpoints.get(endpoint).latency.record(nanos);
+    }
+
+    void recordError(Endpoint endpoint) {
+        endpoints.get(endpoint).errors.increment();
+    }
+
+    void recordBytes(Endpoint endpoint, long bytes) {
+        endpoints.get(endpoint).bytes.add(bytes);
+    }
+
+    void recordDecode(long nanos) {
+        decode.record(nanos);
+    }
+
+    void setLimiter(ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Reading */
+    /* ------------------------------------------------------------ */
+    public EndpointMetrics get(Endpoint endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    public LatencyHistogram getDecode() {
+        return decode;
+    }
+
+    @Override
+    public long getRequests() {
+        long sum = 0;
+        for (EndpointMetrics m : endpoints.values()) {
+            sum += m.getRequests();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getErrors() {
+        long sum = 0;
+        for (EndpointMetrics m : endpoints.values()) {
+            sum += m.getErrors();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getBytesReceived() {
+        long sum = 0;
+        for (EndpointMetrics m : endpoints.values()) {
+            sum += m.getBytesReceived();
+        }
+        return sum;
+    }
+
+    @Override
+    public double getDecodeMeanMicros() {
+        return decode.getMean() / 1e3;
+    }
+
+    @Override
+    public double getDecodeP99Micros() {
+        return decode.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        ConcurrencyLimiter l = limiter;
+        return l == null ? 0 : l.getLimit();
+    }
+
+    @Override
+    public int getInFlight() {
+        ConcurrencyLimiter l = limiter;
+        return l == null ? 0 : l.getInFlight();
+    }
+
+    @Override
+    public int getQueued() {
+        ConcurrencyLimiter l = limiter;
+        return l == null ? 0 : l.getQueued();
+    }
+
+    /** A table of every endpoint that has been called, plus decode time and the concurrency limit. */
+    @Override
+    public String getSummary() {
+        StringBuilder out = new StringBuilder(String.format("%-9s %9s %7s %10s %8s %8s %8s %8s%n",
+                "endpoint", "requests", "errors", "KB in", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<Endpoint, EndpointMetrics> e : endpoints.entrySet()) {
+            EndpointMetrics m = e.getValue();
+            if (m.getRequests() == 0) {
+                continue;
+            }
+            out.append(String.format("%-9s %9d %7d %10.1f %8.1f %8.1f %8.1f %8.1f%n", e.getKey().getLabel(),
+                    m.getRequests(), m.getErrors(), m.getBytesReceived() / 1024.0, m.getP50Millis(),
+                    m.getP99Millis(), m.getP999Millis(), m.getMaxMillis()));
+        }
+        out.append(String.format("decode    mean %.1f us  p99 %.1f us%n", getDecodeMeanMicros(),
+                getDecodeP99Micros()));
+        ConcurrencyLimiter l = limiter;
+        if (l != null) {
+            out.append("limiter   ").append(l).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    /* ------------------------------------------------------------ */
+    /* JMX */
+    /* ------------------------------------------------------------ */
+
+    /** Publishes these metrics on the platform MBean server under this name. */
+    public synchronized void register(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String quoted = ObjectName.quote(name);
+        try {
+            register(server, new ObjectName("client:type=ClientMetrics,name=" + quoted), this);
+            for (Map.Entry<Endpoint, EndpointMetrics> e : endpoints.entrySet()) {
+                register(server, new ObjectName("client:type=ClientMetrics,name=" + quoted
+                        + ",endpoint=" + e.getKey().getLabel()), e.getValue());
+            }
+        } catch (JMException e) {
+            unregister();
+            throw new IllegalStateException("Cannot register metrics as " + name, e);
+        }
+    }
+
+    private void register(MBeanServer server, ObjectName objectName, Object bean) throws JMException {
+        server.registerMBean(bean, objectName);
+        registered.add(objectName);
+    }
+
+    public synchronized void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registered) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                // already gone
+            }
+        }
+        registered.clear();
+    }
+}
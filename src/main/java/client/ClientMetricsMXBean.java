@@ -0,0 +1,26 @@
+package client;
+
+/** Totals for one {@link ClientMetrics}, as seen in JConsole or VisualVM. */
+public interface ClientMetricsMXBean {
+    long getRequests();
+
+    long getErrors();
+
+    long getBytesReceived();
+
+    double getDecodeMeanMicros();
+
+    double getDecodeP99Micros();
+
+    /** The adaptive concurrency limit, or 0 when requests are not limited. */
+    int getConcurrencyLimit();
+
+    /** Requests holding a slot under that limit. */
+    int getInFlight();
+
+    /** Requests waiting for a slot. */
+    int getQueued();
+
+    /** The same table the headless player prints. */
+    String getSummary();
+}
@@ -0,0 +1,225 @@
+package client;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Caps how many requests are in flight at once and finds the cap itself,
+ * AIMD style. While latency holds, the limit grows by about one per round
+ * trip, or doubles per round trip until the first backoff (TCP's slow
+ * start), so a fresh limiter finds its level quickly. It is cut by
+ * {@link #BACKOFF} when latency inflates, when a request times out, or when
+ * the server answers 429 or 5xx; the first cut, which ends slow start, is
+ * {@link #SLOW_START_BACKOFF}. It is cut at most once per round trip: a bad
+ * answer to a request sent before the last cut is already accounted for.
+ *
+ * Latency is tracked per endpoint, because a start costs the server more
+ * than a bet. Each endpoint keeps a recent latency, smoothed over the last
+ * few answers, and a baseline. Latency has inflated when the recent latency
+ * is above {@link #TOLERANCE} times the baseline. The limit holds while it
+ * is, and is cut once that has lasted a whole round trip, that is, once a
+ * request sent after it went over comes back; so a moment of noise, such as
+ * a pause on a busy machine, passes without a cut. Both tests are relative,
+ * so the microsecond latencies of a local server are judged the same way as
+ * a remote one.
+ *
+ * The baseline follows the recent latency down quickly. It rises only
+ * slowly, over about {@link #BASELINE_WINDOW} answers, and only while the
+ * latency holds and the limit isn't what holds requests back. So neither
+ * the limiter's own growth nor a standing queue it caused can raise it, and
+ * latency that stays inflated keeps the limit down. The exception is a
+ * server that has genuinely become slower: once the limit is at its floor
+ * and latency has stayed inflated for {@link #BASELINE_WINDOW} answers,
+ * cutting further can't help, and the baseline starts again from the
+ * recent latency.
+ *
+ * Requests over the limit wait in a queue and are sent, in order, as
+ * earlier ones complete. No thread blocks on the queue. One limiter can be
+ * shared by several connecters talking to the same server.
+ */
+public final class ConcurrencyLimiter {
+    /** Recent latency up to this multiple of the baseline counts as holding. */
+    static final double TOLERANCE = 2.0;
+    /** The limit is multiplied by this on each backoff. */
+    static final double BACKOFF = 0.9;
+    /** The first backoff ends slow start, which may have overshot by up to double, so it cuts this much. */
+    static final double SLOW_START_BACKOFF = 0.5;
+    /** Roughly how many samples it takes the baseline to follow a rise in latency. */
+    static final int BASELINE_WINDOW = 500;
+    // weight of each new sample in the recent latency
+    private static final double SMOOTHING = 0.1;
+    // samples an endpoint needs before its latency is judged
+    private static final int WARMUP = 20;
+    private static final long NOT_INFLATED = Long.MIN_VALUE;
+
+    // queued sends start on their own virtual thread; a send only hands the request to the HttpClient
+    private static final ExecutorService HANDOFF = Executors.newVirtualThreadPerTaskExecutor();
+
+    public static final int DEFAULT_INITIAL = 8;
+    public static final int DEFAULT_MAX = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+    private final double[] recent = new double[Endpoint.values().length];
+    private final double[] baseline = new double[recent.length];
+    private final long[] samples = new long[recent.length];
+    private final long[] inflatedSince = new long[recent.length];
+    private final int[] atFloor = new int[recent.length];
+
+    // all guarded by this
+    private double limit;
+    private int inFlight;
+    private long lastBackoff;
+    private long backoffs;
+
+    public ConcurrencyLimiter() {
+        this(DEFAULT_INITIAL, 1, DEFAULT_MAX);
+    }
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Need 1 <= min <= initial <= max");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.lastBackoff = System.nanoTime();
+        Arrays.fill(inflatedSince, NOT_INFLATED);
+    }
+
+    /**
+     * Runs {@code send} now if there is room, otherwise once there is. Every
+     * send that runs must end with exactly one of {@link #onSuccess},
+     * {@link #onDropped} or {@link #release}.
+     */
+    public void execute(Runnable send) {
+        synchronized (this) {
+            if (inFlight >= (int) limit || !waiting.isEmpty()) {
+                waiting.add(send);
+                return;
+            }
+            inFlight++;
+        }
+        send.run();
+    }
+
+    /** A request answered in {@code nanos}, with a status that says nothing about load. */
+    public void onSuccess(Endpoint endpoint, long sentAt, long nanos) {
+        synchronized (this) {
+            int e = endpoint.ordinal();
+            if (inflated(e, nanos)) {
+                // cut once it has lasted a round trip; until then, hold
+                if (sentAt - inflatedSince[e] >= 0) {
+                    backoff(sentAt);
+                }
+            } else if (inFlight * 2 >= (int) limit) {
+                // only grow while the limit is what holds requests back; until
+                // the first backoff, double per round trip rather than add one
+                limit = Math.min(maxLimit, limit + (backoffs == 0 ? 1 : 1 / limit));
+            }
+        }
+        release();
+    }
+
+    /** A request timed out, failed to connect, or was refused for load. */
+    public void onDropped(long sentAt) {
+        synchronized (this) {
+            backoff(sentAt);
+        }
+        release();
+    }
+
+    /** Frees a slot without a verdict, e.g. for a request that was never sent. */
+    public void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    // starts queued sends while there is room, which after growth may be more than one
+    private void drain() {
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                if (waiting.isEmpty() || inFlight >= (int) limit) {
+                    return;
+                }
+                inFlight++;
+                next = waiting.poll();
+            }
+            // not inline: a send that fails at once would recurse through here
+            HANDOFF.execute(next);
+        }
+    }
+
+    // whether the recent latency is over TOLERANCE times the baseline, and since when
+    private boolean inflated(int e, long nanos) {
+        if (samples[e]++ == 0) {
+            recent[e] = nanos;
+            baseline[e] = nanos;
+        }
+        recent[e] += SMOOTHING * (nanos - recent[e]);
+        if (samples[e] < WARMUP || recent[e] <= TOLERANCE * baseline[e]) {
+            // quick to fall, slow to rise: a moment of queueing barely moves it. And it only
+            // rises while the limit holds nothing back, so the limiter's own growth can't raise it
+            if (recent[e] < baseline[e]) {
+                baseline[e] += SMOOTHING * (recent[e] - baseline[e]);
+            } else if (inFlight * 2 < (int) limit) {
+                baseline[e] += (recent[e] - baseline[e]) / BASELINE_WINDOW;
+            }
+            inflatedSince[e] = NOT_INFLATED;
+            atFloor[e] = 0;
+            return false;
+        }
+        // otherwise the baseline holds, so latency that stays high keeps counting as high.
+        // At the floor, though, the latency isn't this client's doing: the server has slowed
+        if ((int) limit <= minLimit && ++atFloor[e] >= BASELINE_WINDOW) {
+            baseline[e] = recent[e];
+            inflatedSince[e] = NOT_INFLATED;
+            atFloor[e] = 0;
+            return false;
+        }
+        if (inflatedSince[e] == NOT_INFLATED) {
+            inflatedSince[e] = System.nanoTime();
+        }
+        return true;
+    }
+
+    private void backoff(long sentAt) {
+        if (sentAt - lastBackoff < 0 || limit <= minLimit) {
+            return;
+        }
+        limit = Math.max(minLimit, limit * (backoffs == 0 ? SLOW_START_BACKOFF : BACKOFF));
+        lastBackoff = System.nanoTime();
+        backoffs++;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Reading */
+    /* ------------------------------------------------------------ */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    public synchronized long getBackoffs() {
+        return backoffs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("limit %d  in flight %d  queued %d  backoffs %d", getLimit(), getInFlight(),
+                getQueued(), getBackoffs());
+    }
+}
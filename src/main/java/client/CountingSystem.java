@@ -0,0 +1,48 @@
+package client;
+
+/**
+ * Card counting systems as per-rank tag tables, indexed by {@link Card#rank()}
+ * (0 = two ... 8 = ten, 9-11 = J/Q/K, 12 = ace).
+ */
+public enum CountingSystem {
+    //                 2  3  4  5  6  7  8  9 10  J  Q  K  A
+    HI_LO(true, new int[] { 1, 1, 1, 1, 1, 0, 0, 0, -1, -1, -1, -1, -1 }),
+    KO(false, new int[] { 1, 1, 1, 1, 1, 1, 0, 0, -1, -1, -1, -1, -1 }),
+    OMEGA_II(true, new int[] { 1, 1, 2, 2, 2, 1, 0, -1, -2, -2, -2, -2, 0 }),
+    ZEN(true, new int[] { 1, 1, 2, 2, 2, 1, 0, 0, -2, -2, -2, -2, -1 });
+
+    private final boolean balanced;
+    private final byte[] tags = new byte[13];
+    private final byte[] tagsByCode = new byte[52];
+
+    CountingSystem(boolean balanced, int[] tags) {
+        this.balanced = balanced;
+        for (int rank = 0; rank < 13; rank++) {
+            this.tags[rank] = (byte) tags[rank];
+        }
+        for (int code = 0; code < 52; code++) {
+            tagsByCode[code] = (byte) tags[code % 13];
+        }
+    }
+
+    public boolean isBalanced() {
+        return balanced;
+    }
+
+    public int tagForRank(int rank) {
+        return tags[rank];
+    }
+
+    /** Tag for a card code ({@link Card#ordinal()}). */
+    public int tag(int code) {
+        return tagsByCode[code];
+    }
+
+    /**
+     * Running count at the top of a fresh shoe: zero for balanced systems,
+     * 4 - 4 x decks for KO so its pivot lands where a balanced count would be zero.
+     */
+    public int initialRunningCount(int decks) {
+        return balanced ? 0 : 4 - 4 * decks;
+    }
+}
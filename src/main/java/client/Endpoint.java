@@ -0,0 +1,41 @@
+package client;
+
+import java.time.Duration;
+
+/**
+ * The server's REST endpoints, with whether a call can safely be sent twice
+ * and how long it gets before it is abandoned.
+ */
+public enum Endpoint {
+    START("start", false, Duration.ofSeconds(10)),
+    BET("bet", false, Duration.ofSeconds(5)),
+    HIT("hit", false, Duration.ofSeconds(5)),
+    STAND("stand", false, Duration.ofSeconds(5)),
+    RESET("reset", false, Duration.ofSeconds(5)),
+    FINISH("finish", false, Duration.ofSeconds(10)),
+    RESUME("resume", true, Duration.ofSeconds(5)),
+    SESSIONS("sessions", true, Duration.ofSeconds(10));
+
+    private final String label;
+    private final boolean idempotent;
+    private final Duration defaultBudget;
+
+    Endpoint(String label, boolean idempotent, Duration defaultBudget) {
+        this.label = label;
+        this.idempotent = idempotent;
+        this.defaultBudget = defaultBudget;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /** Read-only calls; only these are ever hedged. */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    public Duration getDefaultBudget() {
+        return defaultBudget;
+    }
+}
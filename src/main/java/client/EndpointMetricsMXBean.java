@@ -0,0 +1,22 @@
+package client;
+
+/** One endpoint's counters and latency percentiles. Latencies include decoding the body. */
+public interface EndpointMetricsMXBean {
+    long getRequests();
+
+    long getErrors();
+
+    long getBytesReceived();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,322 @@
+package client;
+
+/**
+ * Exact expected value of hitting and standing for the actual cards left in
+ * the shoe. The calculation recurses over every card the player or dealer
+ * could draw next.
+ *
+ * The shoe is an int[10] of unseen cards by points: index 0 is the ace,
+ * 1 to 8 are two to nine, and 9 is every ten-valued card. The player's cards
+ * and the dealer's upcard must already be out of it. The dealer's hole card
+ * must still be in it, since it is unknown.
+ *
+ * Rules match the server: the dealer stands on all 17s, and a dealer
+ * blackjack ends the hand before the player acts. So while the player is
+ * deciding, the hole card can't complete a dealer blackjack.
+ *
+ * Results are memoized in a fixed-size, direct-mapped cache keyed by a
+ * packed long: five bits per shoe count, plus hand total, softness, upcard
+ * and kind. A new entry overwrites whatever shared its slot, so memory stays
+ * bounded no matter how long the calculator lives. Entries stay valid
+ * across decisions because each one is a pure function of its key. Shoes
+ * with more than 31 cards of one kind (multi-deck tens) fall back to
+ * uncached recursion. An instance is not thread-safe.
+ */
+public final class EvCalculator {
+    public static final int ACE = 0;
+    public static final int TEN = 9;
+
+    // dealer outcome buckets: 17, 18, 19, 20, 21, bust
+    private static final int WIDTH = 6;
+    private static final int BUST = 5;
+    private static final int MAX_DEPTH = 40;
+
+    private static final int KIND_DEALER = 0;
+    private static final int KIND_DEALER_UPCARD = 1;
+    private static final int KIND_PLAYER = 2;
+    private static final int NO_UPCARD = 15;
+
+    private final Cache cache;
+    private final double[][] scratch = new double[MAX_DEPTH][WIDTH];
+    private final int[] shoe = new int[10];
+    private int shoeSize;
+    private long shoeKey;
+    private boolean keyable;
+    private int upIndex;
+
+    public EvCalculator() {
+        this(1 << 16);
+    }
+
+    /** @param cacheSlots cache capacity, rounded up to a power of two */
+    public EvCalculator(int cacheSlots) {
+        this.cache = new Cache(cacheSlots);
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Public API */
+    /* ------------------------------------------------------------ */
+    public double standEv(Hand player, Card upcard, int[] unseen) {
+        load(upcard, unseen);
+        return standEv(player.isBust() ? 22 : player.total(), dealerFromUpcard());
+    }
+
+    /** EV of taking one card and then playing on optimally. */
+    public double hitEv(Hand player, Card upcard, int[] unseen) {
+        load(upcard, unseen);
+        return hitEv(player.hardTotal(), hasAce(player), 0);
+    }
+
+    public boolean shouldHit(Hand player, Card upcard, int[] unseen) {
+        return hitEv(player, upcard, unseen) > standEv(player, upcard, unseen);
+    }
+
+    /** The dealer's final-total distribution (17, 18, 19, 20, 21, bust) for this shoe. */
+    public double[] dealerDistribution(Card upcard, int[] unseen) {
+        load(upcard, unseen);
+        return dealerFromUpcard().clone();
+    }
+
+    public long getCacheHits() {
+        return cache.hits;
+    }
+
+    public long getCacheMisses() {
+        return cache.misses;
+    }
+
+    private static boolean hasAce(Hand hand) {
+        for (int i = 0; i < hand.size(); i++) {
+            if (Card.points(hand.code(i)) == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void load(Card upcard, int[] unseen) {
+        upIndex = upcard.points() - 1;
+        shoeSize = 0;
+        shoeKey = 0;
+        keyable = true;
+        for (int i = 0; i < 10; i++) {
+            shoe[i] = unseen[i];
+            shoeSize += unseen[i];
+            keyable &= unseen[i] >= 0 && unseen[i] <= 31;
+            shoeKey |= (long) (unseen[i] & 31) << (5 * i);
+        }
+    }
+
+    private void take(int i) {
+        shoe[i]--;
+        shoeSize--;
+        shoeKey -= 1L << (5 * i);
+    }
+
+    private void putBack(int i) {
+        shoe[i]++;
+        shoeSize++;
+        shoeKey += 1L << (5 * i);
+    }
+
+    private long key(int kind, int hard, boolean ace, int up) {
+        return shoeKey | ((long) hard << 50) | (ace ? 1L << 55 : 0) | ((long) up << 56) | ((long) kind << 60);
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Dealer */
+    /* ------------------------------------------------------------ */
+
+    // distribution after the hole card and any draws, given the upcard and no dealer blackjack
+    private double[] dealerFromUpcard() {
+        double[] out = scratch[0];
+        long key = key(KIND_DEALER_UPCARD, 0, false, upIndex);
+        if (keyable && cache.get(key, out)) {
+            return out;
+        }
+        clear(out);
+        int weight = 0;
+        for (int i = 0; i < 10; i++) {
+            if (!makesBlackjack(upIndex, i)) {
+                weight += shoe[i];
+            }
+        }
+        if (weight == 0) {
+            out[0] = 1; // nothing left to draw; treat as a 17
+            return out;
+        }
+        for (int i = 0; i < 10; i++) {
+            int n = shoe[i];
+            if (n == 0 || makesBlackjack(upIndex, i)) {
+                continue;
+            }
+            double p = n / (double) weight;
+            take(i);
+            double[] sub = dealer(upIndex + 1 + i + 1, upIndex == ACE || i == ACE, 1);
+            putBack(i);
+            for (int k = 0; k < WIDTH; k++) {
+                out[k] += p * sub[k];
+            }
+        }
+        if (keyable) {
+            cache.put(key, out);
+        }
+        return out;
+    }
+
+    private static boolean makesBlackjack(int up, int hole) {
+        return (up == ACE && hole == TEN) || (up == TEN && hole == ACE);
+    }
+
+    private double[] dealer(int hard, boolean ace, int depth) {
+        double[] out = scratch[depth];
+        if (hard > 21) {
+            clear(out);
+            out[BUST] = 1;
+            return out;
+        }
+        int best = (ace && hard <= 11) ? hard + 10 : hard;
+        if (best >= 17 || shoeSize == 0) {
+            clear(out);
+            out[Math.max(best, 17) - 17] = 1;
+            return out;
+        }
+        long key = key(KIND_DEALER, hard, ace, NO_UPCARD);
+        if (keyable && cache.get(key, out)) {
+            return out;
+        }
+        clear(out);
+        for (int i = 0; i < 10; i++) {
+            int n = shoe[i];
+            if (n == 0) {
+                continue;
+            }
+            double p = n / (double) shoeSize;
+            take(i);
+            double[] sub = dealer(hard + i + 1, ace || i == ACE, depth + 1);
+            putBack(i);
+            for (int k = 0; k < WIDTH; k++) {
+                out[k] += p * sub[k];
+            }
+        }
+        if (keyable) {
+            cache.put(key, out);
+        }
+        return out;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Player */
+    /* ------------------------------------------------------------ */
+    private static double standEv(int best, double[] dealer) {
+        if (best > 21) {
+            return -1;
+        }
+        double ev = dealer[BUST];
+        for (int k = 0; k < BUST; k++) {
+            int total = 17 + k;
+            if (best > total) {
+                ev += dealer[k];
+            } else if (best < total) {
+                ev -= dealer[k];
+            }
+        }
+        return ev;
+    }
+
+    private double hitEv(int hard, boolean ace, int depth) {
+        if (shoeSize == 0) {
+            return standEv((ace && hard <= 11) ? hard + 10 : hard, dealerFromUpcard());
+        }
+        double ev = 0;
+        int size = shoeSize;
+        for (int i = 0; i < 10; i++) {
+            int n = shoe[i];
+            if (n == 0) {
+                continue;
+            }
+            double p = n / (double) size;
+            take(i);
+            ev += p * optimal(hard + i + 1, ace || i == ACE, depth + 1);
+            putBack(i);
+        }
+        return ev;
+    }
+
+    // best of standing and hitting from here
+    private double optimal(int hard, boolean ace, int depth) {
+        if (hard > 21) {
+            return -1;
+        }
+        long key = key(KIND_PLAYER, hard, ace, upIndex);
+        if (keyable) {
+            double[] out = scratch[depth];
+            if (cache.get(key, out)) {
+                return out[0];
+            }
+        }
+        int best = (ace && hard <= 11) ? hard + 10 : hard;
+        double stand = standEv(best, dealerFromUpcard());
+        double ev = best == 21 ? stand : Math.max(stand, hitEv(hard, ace, depth));
+        if (keyable) {
+            double[] out = scratch[depth];
+            out[0] = ev;
+            cache.put(key, out);
+        }
+        return ev;
+    }
+
+    private static void clear(double[] out) {
+        for (int k = 0; k < WIDTH; k++) {
+            out[k] = 0;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Cache */
+    /* ------------------------------------------------------------ */
+    private static final class Cache {
+        // bit 63 is never part of a key, so it marks a slot as filled
+        private static final long FILLED = 1L << 63;
+
+        private final long[] keys;
+        private final double[] values;
+        private final int mask;
+        long hits;
+        long misses;
+
+        Cache(int slots) {
+            int size = Integer.highestOneBit(Math.max(slots - 1, 1)) << 1;
+            keys = new long[size];
+            values = new double[size * WIDTH];
+            mask = size - 1;
+        }
+
+        private int slot(long key) {
+            // murmur3 finalizer
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            key *= 0xc4ceb9fe1a85ec53L;
+            key ^= key >>> 33;
+            return (int) key & mask;
+        }
+
+        boolean get(long key, double[] out) {
+            int slot = slot(key);
+            if (keys[slot] != (key | FILLED)) {
+                misses++;
+                return false;
+            }
+            hits++;
+            System.arraycopy(values, slot * WIDTH, out, 0, WIDTH);
+            return true;
+        }
+
+        void put(long key, double[] value) {
+            int slot = slot(key);
+            keys[slot] = key | FILLED;
+            System.arraycopy(value, 0, values, slot * WIDTH, WIDTH);
+        }
+    }
+}
@@ -1,17 +1,39 @@
 package client;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.UUID;
 
-import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 
+/**
+ * One server response. Cards are held as {@link Card#code} values in fixed
+ * byte arrays, with {@link Card#HIDDEN_CODE} for the dealer's face-down card.
+ * {@link #playerCards} and {@link #dealerCards} are read-only views that turn
+ * codes into the server's card names only when asked. An instance can be
+ * {@link #clear() cleared} and refilled, which is how
+ * {@link ClientConnecter#setReuseStates} keeps one per session.
+ */
 public class GameState {
+    /** {@link #dealerValue} while the dealer's hole card is face down. */
+    public static final int HIDDEN_VALUE = -1;
 
     public UUID sessionId;
-    public List<String> playerCards;
+    public final byte[] playerCodes = new byte[Hand.MAX_CARDS];
+    public int playerCount;
+    public final byte[] dealerCodes = new byte[Hand.MAX_CARDS];
+    public int dealerCount;
+    public final List<String> playerCards = new CardView(playerCodes, false);
     public int playerValue;
-    public List<String> dealerCards;
-    public Integer dealerValue;
+    public final List<String> dealerCards = new CardView(dealerCodes, true);
+    public int dealerValue = HIDDEN_VALUE;
     public String phase;
     public String outcome;
     public int balance;
@@ -22,8 +44,74 @@ public class GameState {
     public int cardsRemaining;
     public boolean reshuffled;
 
+    /** Adds a card code; cards past {@link Hand#MAX_CARDS} are dropped. */
+    public void addPlayerCard(int code) {
+        if (playerCount < playerCodes.length) {
+            playerCodes[playerCount++] = (byte) code;
+        }
+    }
+
+    public void addDealerCard(int code) {
+        if (dealerCount < dealerCodes.length) {
+            dealerCodes[dealerCount++] = (byte) code;
+        }
+    }
+
+    /** Resets every field to what a fresh instance holds, ready to be refilled. */
+    public void clear() {
+        sessionId = null;
+        playerCount = 0;
+        dealerCount = 0;
+        playerValue = 0;
+        dealerValue = HIDDEN_VALUE;
+        phase = null;
+        outcome = null;
+        balance = 0;
+        currentBet = 0;
+        canHit = false;
+        canStand = false;
+        gameOver = false;
+        cardsRemaining = 0;
+        reshuffled = false;
+    }
+
+    /** Card names over one side's codes; hidden cards read "???" and unknown text reads "?". */
+    private final class CardView extends AbstractList<String> implements RandomAccess {
+        private final byte[] codes;
+        private final boolean dealer;
+
+        CardView(byte[] codes, boolean dealer) {
+            this.codes = codes;
+            this.dealer = dealer;
+        }
+
+        @Override
+        public String get(int index) {
+            Objects.checkIndex(index, size());
+            int code = codes[index];
+            if (code >= 0) {
+                return Card.of(code).getName();
+            }
+            return code == Card.HIDDEN_CODE ? Card.HIDDEN : "?";
+        }
+
+        @Override
+        public int size() {
+            return dealer ? dealerCount : playerCount;
+        }
+    }
+
     public static GameState fromJson(String json) {
-        return new Gson().fromJson(json, GameState.class);
+        return JsonUtil.GSON.fromJson(json, GameState.class);
+    }
+
+    /** Decodes straight from a response body without buffering it into a String. */
+    public static GameState fromJson(InputStream body) {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return GameStateAdapter.INSTANCE.read(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
@@ -31,7 +119,7 @@ public class GameState {
     {
         return sessionId + "\n"+
             playerCards+" ("+playerValue+")\n"+
-            dealerCards+" ("+dealerValue+")\n"+
+            dealerCards+" ("+(dealerValue == HIDDEN_VALUE ? "?" : dealerValue)+")\n"+
             phase+"\n"+
             "outcome: "+outcome+"\n"+
             "balance: "+balance+"\n"+
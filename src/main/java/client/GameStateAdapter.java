@@ -0,0 +1,133 @@
+package client;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Hand-written Gson adapter for {@link GameState}. It streams field by field
+ * with no reflection and stores each card as its {@link Card#code}, so
+ * decoded hands don't keep per-response strings. Unknown fields are skipped.
+ * {@link GameStateDecoder} is the allocation-free equivalent for refilling
+ * an existing state.
+ */
+public class GameStateAdapter extends TypeAdapter<GameState> {
+    public static final GameStateAdapter INSTANCE = new GameStateAdapter();
+
+    @Override
+    public GameState read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        GameState state = new GameState();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "sessionId":
+                    state.sessionId = UUID.fromString(in.nextString());
+                    break;
+                case "playerCards":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        state.addPlayerCard(Card.code(in.nextString()));
+                    }
+                    in.endArray();
+                    break;
+                case "playerValue":
+                    state.playerValue = in.nextInt();
+                    break;
+                case "dealerCards":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        state.addDealerCard(Card.code(in.nextString()));
+                    }
+                    in.endArray();
+                    break;
+                case "dealerValue":
+                    state.dealerValue = in.nextInt();
+                    break;
+                case "phase":
+                    state.phase = in.nextString();
+                    break;
+                case "outcome":
+                    state.outcome = in.nextString();
+                    break;
+                case "balance":
+                    state.balance = in.nextInt();
+                    break;
+                case "currentBet":
+                    state.currentBet = in.nextInt();
+                    break;
+                case "canHit":
+                    state.canHit = in.nextBoolean();
+                    break;
+                case "canStand":
+                    state.canStand = in.nextBoolean();
+                    break;
+                case "gameOver":
+                    state.gameOver = in.nextBoolean();
+                    break;
+                case "cardsRemaining":
+                    state.cardsRemaining = in.nextInt();
+                    break;
+                case "reshuffled":
+                case "reShuffled": // spelling used in the API docs
+                    state.reshuffled = in.nextBoolean();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return state;
+    }
+
+    @Override
+    public void write(JsonWriter out, GameState state) throws IOException {
+        if (state == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("sessionId").value(state.sessionId == null ? null : state.sessionId.toString());
+        writeCards(out.name("playerCards"), state.playerCards);
+        out.name("playerValue").value(state.playerValue);
+        writeCards(out.name("dealerCards"), state.dealerCards);
+        out.name("dealerValue");
+        if (state.dealerValue == GameState.HIDDEN_VALUE) {
+            out.nullValue();
+        } else {
+            out.value(state.dealerValue);
+        }
+        out.name("phase").value(state.phase);
+        out.name("outcome").value(state.outcome);
+        out.name("balance").value(state.balance);
+        out.name("currentBet").value(state.currentBet);
+        out.name("canHit").value(state.canHit);
+        out.name("canStand").value(state.canStand);
+        out.name("gameOver").value(state.gameOver);
+        out.name("cardsRemaining").value(state.cardsRemaining);
+        out.name("reshuffled").value(state.reshuffled);
+        out.endObject();
+    }
+
+    private static void writeCards(JsonWriter out, List<String> cards) throws IOException {
+        out.beginArray();
+        for (String card : cards) {
+            out.value(card);
+        }
+        out.endArray();
+    }
+}
@@ -0,0 +1,412 @@
+package client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Decodes game state responses into one {@link GameState} that it owns,
+ * refilling it in place each time. The body is read into a reusable byte
+ * buffer and parsed there. Field names, phases, outcomes and cards are
+ * matched against the bytes through a reusable {@link CharSequence}, and the
+ * session id is parsed from its hex digits. So in steady state a decode
+ * allocates nothing. The exceptions are a session id that changes, and text
+ * the server has never sent before (an unknown phase or an escaped string).
+ *
+ * It accepts the same JSON as {@link GameStateAdapter}, and unknown fields
+ * are skipped. Not thread-safe: one decoder per session, one call at a time.
+ */
+final class GameStateDecoder {
+    private static final String[] FIELDS = { "sessionId", "playerCards", "playerValue", "dealerCards",
+            "dealerValue", "phase", "outcome", "balance", "currentBet", "canHit", "canStand", "gameOver",
+            "cardsRemaining", "reshuffled", "reShuffled" };
+    private static final String[] PHASES = { "BETTING", "PLAYER_TURN", "RESOLVED" };
+    private static final String[] OUTCOMES;
+
+    static {
+        Simulator.Outcome[] outcomes = Simulator.Outcome.values();
+        OUTCOMES = new String[outcomes.length];
+        for (int i = 0; i < outcomes.length; i++) {
+            OUTCOMES[i] = outcomes[i].name();
+        }
+    }
+
+    private final GameState state = new GameState();
+    private final Text text = new Text();
+    private byte[] buffer = new byte[1024];
+    private int length;
+    private int pos;
+
+    GameState getState() {
+        return state;
+    }
+
+    /** Reads the whole body and refills the state from it. */
+    GameState decode(InputStream body) throws IOException {
+        length = 0;
+        int n;
+        while ((n = body.read(buffer, length, buffer.length - length)) != -1) {
+            length += n;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, length * 2);
+            }
+        }
+        pos = 0;
+        parse();
+        return state;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Fields */
+    /* ------------------------------------------------------------ */
+    private void parse() throws IOException {
+        GameState s = state;
+        UUID previous = s.sessionId;
+        s.clear();
+        expect('{');
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+        do {
+            int field = indexOf(string(), FIELDS);
+            expect(':');
+            if (field < 0) {
+                skipValue();
+                continue;
+            }
+            if (nextIsNull()) {
+                continue;
+            }
+            switch (field) {
+                case 0:
+                    s.sessionId = sessionId(string(), previous);
+                    break;
+                case 1:
+                    s.playerCount = cards(s.playerCodes);
+                    break;
+                case 2:
+                    s.playerValue = integer();
+                    break;
+                case 3:
+                    s.dealerCount = cards(s.dealerCodes);
+                    break;
+                case 4:
+                    s.dealerValue = integer();
+                    break;
+                case 5:
+                    s.phase = constant(string(), PHASES);
+                    break;
+                case 6:
+                    s.outcome = constant(string(), OUTCOMES);
+                    break;
+                case 7:
+                    s.balance = integer();
+                    break;
+                case 8:
+                    s.currentBet = integer();
+                    break;
+                case 9:
+                    s.canHit = bool();
+                    break;
+                case 10:
+                    s.canStand = bool();
+                    break;
+                case 11:
+                    s.gameOver = bool();
+                    break;
+                case 12:
+                    s.cardsRemaining = integer();
+                    break;
+                default: // reshuffled, in either spelling
+                    s.reshuffled = bool();
+                    break;
+            }
+        } while (comma('}'));
+    }
+
+    private int cards(byte[] into) throws IOException {
+        expect('[');
+        int count = 0;
+        if (peek() == ']') {
+            pos++;
+            return 0;
+        }
+        do {
+            if (nextIsNull()) {
+                continue;
+            }
+            int code = Card.code(string());
+            if (count < into.length) {
+                into[count++] = (byte) code;
+            }
+        } while (comma(']'));
+        return count;
+    }
+
+    // keeps the previous UUID object while the session stays the same
+    private static UUID sessionId(CharSequence id, UUID previous) {
+        if (id.length() != 36 || id.charAt(8) != '-' || id.charAt(13) != '-' || id.charAt(18) != '-'
+                || id.charAt(23) != '-' || !isHex(id)) {
+            return UUID.fromString(id.toString()); // odd forms, and errors, as UUID has them
+        }
+        long high = (hex(id, 0, 8) << 32) | (hex(id, 9, 13) << 16) | hex(id, 14, 18);
+        long low = (hex(id, 19, 23) << 48) | hex(id, 24, 36);
+        if (previous != null && previous.getMostSignificantBits() == high
+                && previous.getLeastSignificantBits() == low) {
+            return previous;
+        }
+        return new UUID(high, low);
+    }
+
+    private static long hex(CharSequence s, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = (value << 4) | Character.digit(s.charAt(i), 16);
+        }
+        return value;
+    }
+
+    private static boolean isHex(CharSequence id) {
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c != '-' && Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String constant(CharSequence value, String[] known) {
+        int i = indexOf(value, known);
+        return i >= 0 ? known[i] : value.toString();
+    }
+
+    private static int indexOf(CharSequence value, String[] known) {
+        for (int i = 0; i < known.length; i++) {
+            if (known[i].contentEquals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Tokens */
+    /* ------------------------------------------------------------ */
+    private int peek() {
+        while (pos < length && (buffer[pos] & 0xff) <= ' ') {
+            pos++;
+        }
+        return pos < length ? buffer[pos] : -1;
+    }
+
+    private void expect(char c) throws IOException {
+        if (peek() != c) {
+            throw malformed("expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    // after a value: true on ',', false on the closing bracket
+    private boolean comma(char close) throws IOException {
+        int c = peek();
+        pos++;
+        if (c == ',') {
+            return true;
+        }
+        if (c != close) {
+            throw malformed("expected ',' or '" + close + "'");
+        }
+        return false;
+    }
+
+    private boolean nextIsNull() throws IOException {
+        if (peek() != 'n') {
+            return false;
+        }
+        literal("null");
+        return true;
+    }
+
+    private void literal(String word) throws IOException {
+        if (pos + word.length() > length) {
+            throw malformed("expected " + word);
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (buffer[pos + i] != word.charAt(i)) {
+                throw malformed("expected " + word);
+            }
+        }
+        pos += word.length();
+    }
+
+    private boolean bool() throws IOException {
+        if (peek() == 't') {
+            literal("true");
+            return true;
+        }
+        literal("false");
+        return false;
+    }
+
+    private int integer() throws IOException {
+        peek();
+        boolean negative = pos < length && buffer[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        int start = pos;
+        long value = 0;
+        while (pos < length && buffer[pos] >= '0' && buffer[pos] <= '9') {
+            value = value * 10 + (buffer[pos++] - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw malformed("number out of range");
+            }
+        }
+        if (pos == start || (pos < length && (buffer[pos] == '.' || buffer[pos] == 'e' || buffer[pos] == 'E'))) {
+            throw malformed("expected an integer");
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw malformed("number out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * The next string's contents. Usually the shared {@link Text} over the
+     * buffer, valid until the next call; a String when it has escapes.
+     */
+    private CharSequence string() throws IOException {
+        expect('"');
+        int start = pos;
+        boolean escaped = false;
+        while (pos < length && buffer[pos] != '"') {
+            if (buffer[pos] == '\\') {
+                escaped = true;
+                pos++;
+            }
+            pos++;
+        }
+        if (pos >= length) {
+            throw malformed("unterminated string");
+        }
+        int end = pos++;
+        return escaped ? unescape(start, end) : text.of(start, end);
+    }
+
+    private String unescape(int start, int end) throws IOException {
+        StringBuilder out = new StringBuilder(end - start);
+        int run = start;
+        for (int i = start; i < end; i++) {
+            if (buffer[i] != '\\') {
+                continue;
+            }
+            out.append(new String(buffer, run, i - run, StandardCharsets.UTF_8));
+            char c = (char) buffer[++i];
+            switch (c) {
+                case 'b':
+                    out.append('\b');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 >= end) {
+                        throw malformed("bad escape");
+                    }
+                    out.append((char) Integer.parseInt(new String(buffer, i + 1, 4, StandardCharsets.US_ASCII), 16));
+                    i += 4;
+                    break;
+                default: // " \ /
+                    out.append(c);
+                    break;
+            }
+            run = i + 1;
+        }
+        return out.append(new String(buffer, run, end - run, StandardCharsets.UTF_8)).toString();
+    }
+
+    private void skipValue() throws IOException {
+        int c = peek();
+        if (c == '"') {
+            string();
+            return;
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = peek();
+                if (c == '"') {
+                    string();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                } else if (c < 0) {
+                    throw malformed("unterminated value");
+                }
+                pos++;
+            } while (depth > 0);
+            return;
+        }
+        int start = pos;
+        while (pos < length && buffer[pos] != ',' && buffer[pos] != '}' && buffer[pos] != ']'
+                && (buffer[pos] & 0xff) > ' ') {
+            pos++;
+        }
+        if (pos == start) {
+            throw malformed("expected a value");
+        }
+    }
+
+    private IOException malformed(String problem) {
+        return new IOException("Malformed game state at byte " + pos + ": " + problem);
+    }
+
+    /** A window on the buffer, so matching a string costs no copy. */
+    private final class Text implements CharSequence {
+        private int start;
+        private int end;
+
+        Text of(int start, int end) {
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer[start + index] & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs blocking work, such as server calls, off the event dispatch thread
+ * and hands the result back on it, so the window keeps painting while a
+ * request is in flight. Each task runs on its own virtual thread.
+ *
+ * Submit from the EDT. The busy listener fires on the EDT when the first
+ * task starts and again when the last one finishes. A task's
+ * {@link Task#succeeded} or {@link Task#failed} runs before the count drops,
+ * so a follow-up call submitted from there keeps the GUI busy without a gap.
+ */
+public class GuiExecutor {
+    public interface BusyListener {
+        void busyChanged(boolean busy);
+    }
+
+    /** Work for a background thread, and what to do with its result on the EDT. */
+    public abstract static class Task<T> {
+        /** Runs on a background thread. */
+        protected abstract T call() throws Exception;
+
+        /** Runs on the EDT with the result of {@link #call()}. */
+        protected abstract void succeeded(T result);
+
+        /** Runs on the EDT if {@link #call()} threw. */
+        protected abstract void failed(Exception e);
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final BusyListener listener;
+    private int inFlight; // EDT only
+
+    public GuiExecutor(BusyListener listener) {
+        this.listener = listener;
+    }
+
+    public boolean isBusy() {
+        return inFlight > 0;
+    }
+
+    public <T> void submit(final Task<T> task) {
+        if (inFlight++ == 0) {
+            listener.busyChanged(true);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                T result = null;
+                Exception error = null;
+                try {
+                    result = task.call();
+                } catch (Exception e) {
+                    error = e;
+                }
+                deliver(task, result, error);
+            }
+        });
+    }
+
+    private <T> void deliver(final Task<T> task, final T result, final Exception error) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (error == null) {
+                        task.succeeded(result);
+                    } else {
+                        task.failed(error);
+                    }
+                } finally {
+                    if (--inFlight == 0) {
+                        listener.busyChanged(false);
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package client;
+
+import java.util.List;
+
+/**
+ * One blackjack hand as a byte array of card codes ({@link Card#ordinal()}),
+ * with the hard total and ace count kept up to date on every add so the
+ * totals never walk the cards. An instance is meant to be cleared and
+ * refilled, so decoders, counters and strategies can share one per session
+ * with no allocation per hand.
+ */
+public final class Hand {
+    // each card is worth at least 1, so no live hand gets past 22 cards
+    public static final int MAX_CARDS = 22;
+
+    private final byte[] cards = new byte[MAX_CARDS];
+    private int size;
+    private int hardTotal;
+    private int aces;
+    private int hidden;
+
+    public void clear() {
+        size = 0;
+        hardTotal = 0;
+        aces = 0;
+        hidden = 0;
+    }
+
+    public void add(int code) {
+        if (size < MAX_CARDS) {
+            cards[size++] = (byte) code;
+        }
+        int points = Card.points(code);
+        hardTotal += points;
+        if (points == 1) {
+            aces++;
+        }
+    }
+
+    public void add(Card card) {
+        add(card.ordinal());
+    }
+
+    /**
+     * Refills the hand from the server's card names. Hidden cards are not
+     * added but are counted by {@link #hiddenCards()}; unknown names are skipped.
+     */
+    public Hand fill(List<String> names) {
+        clear();
+        if (names == null) {
+            return this;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            int code = Card.code(names.get(i));
+            if (code >= 0) {
+                add(code);
+            } else if (code == Card.HIDDEN_CODE) {
+                hidden++;
+            }
+        }
+        return this;
+    }
+
+    /** Refills the hand from card codes, such as a {@link GameState}'s, counting hidden ones the same way. */
+    public Hand fill(byte[] codes, int count) {
+        clear();
+        for (int i = 0; i < count; i++) {
+            int code = codes[i];
+            if (code >= 0) {
+                add(code);
+            } else if (code == Card.HIDDEN_CODE) {
+                hidden++;
+            }
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Card code at position {@code i}. */
+    public int code(int i) {
+        return cards[i];
+    }
+
+    public Card card(int i) {
+        return Card.of(cards[i]);
+    }
+
+    public int hiddenCards() {
+        return hidden;
+    }
+
+    /** Total with every ace counted as 1. */
+    public int hardTotal() {
+        return hardTotal;
+    }
+
+    /** Best total: one ace counts as 11 when that doesn't bust. */
+    public int total() {
+        return isSoft() ? hardTotal + 10 : hardTotal;
+    }
+
+    /** True when an ace is being counted as 11. */
+    public boolean isSoft() {
+        return aces > 0 && hardTotal <= 11;
+    }
+
+    public boolean isBust() {
+        return hardTotal > 21;
+    }
+
+    public boolean isBlackjack() {
+        return size == 2 && aces == 1 && hardTotal == 11;
+    }
+
+    /** The cards as a {@link CardSet} bitmask. */
+    public long toCardSet() {
+        long set = CardSet.EMPTY;
+        for (int i = 0; i < size; i++) {
+            set |= 1L << cards[i];
+        }
+        return set;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(Card.of(cards[i]));
+        }
+        return sb.append("] (").append(isSoft() ? "soft " : "").append(total()).append(')').toString();
+    }
+}
@@ -0,0 +1,270 @@
+package client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only binary log of every game state the client sees, so hands
+ * can be analysed long after the session is finished. Each state is one
+ * fixed-size {@value #RECORD_SIZE}-byte record written into a memory-mapped
+ * region of the file. Appending is a few puts into memory, and the OS
+ * writes the pages out. {@link #force()} runs every second (or as
+ * configured) so a crash loses at most that much.
+ *
+ * File layout (little-endian): a {@value #HEADER_SIZE}-byte header holding
+ * a magic number, the format version, the record size and the number of
+ * records committed, followed by the records:
+ *
+ * <pre>
+ *  0 long  session id, high bits      28 byte  player card count
+ *  8 long  session id, low bits       29 byte  dealer card count
+ * 16 long  time, epoch millis         30 short true count x 10 (NO_COUNT if unknown)
+ * 24 byte  endpoint ordinal           32 int   current bet
+ * 25 byte  phase (PHASE_*)            36 int   balance
+ * 26 byte  outcome (0 none, else      40 short cards remaining
+ *          Simulator.Outcome + 1)     42 byte  player value
+ * 27 byte  flags (FLAG_*)             43 byte  dealer value (-1 if unknown)
+ * 44 byte[20] card codes: the player's, then the dealer's (-1 hidden)
+ * </pre>
+ *
+ * Hands beyond 20 cards in total are cut short, which a one-deck game never
+ * reaches. Read files with {@link HandHistoryReader}. Appends are
+ * thread-safe.
+ */
+public final class HandHistory implements Closeable, ClientConnecter.StateListener {
+    public static final int MAGIC = 0x48484a42; // "BJHH"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 64;
+    public static final int MAX_CARDS = 20;
+    public static final short NO_COUNT = Short.MIN_VALUE;
+
+    public static final byte PHASE_BETTING = 0;
+    public static final byte PHASE_PLAYER_TURN = 1;
+    public static final byte PHASE_RESOLVED = 2;
+    public static final byte PHASE_UNKNOWN = 3;
+
+    public static final int FLAG_RESHUFFLED = 1;
+    public static final int FLAG_GAME_OVER = 2;
+    public static final int FLAG_CAN_HIT = 4;
+    public static final int FLAG_CAN_STAND = 8;
+
+    static final int COUNT_OFFSET = 16;
+    // records per mapped region; 64 MB at a time
+    static final int REGION_RECORDS = 1 << 20;
+    private static final long REGION_BYTES = (long) REGION_RECORDS * RECORD_SIZE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final ScheduledExecutorService forcer;
+    private MappedByteBuffer region;
+    private MappedByteBuffer previousRegion; // may still have unforced pages
+    private long regionStart = -1; // first record index in region
+    private long count;
+    private boolean closed;
+
+    private HandHistory(FileChannel channel, long forceMillis) throws IOException {
+        this.channel = channel;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) == 0) {
+            header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_SIZE).putLong(COUNT_OFFSET, 0);
+        } else if (header.getInt(0) != MAGIC || header.getInt(8) != RECORD_SIZE) {
+            throw new IOException("Not a hand history file");
+        }
+        count = header.getLong(COUNT_OFFSET);
+        if (forceMillis > 0) {
+            forcer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "hand-history-force");
+                t.setDaemon(true);
+                return t;
+            });
+            forcer.scheduleWithFixedDelay(this::forceQuietly, forceMillis, forceMillis, TimeUnit.MILLISECONDS);
+        } else {
+            forcer = null;
+        }
+    }
+
+    /** Opens a file for appending, creating it if needed, and forces it to disk every second. */
+    public static HandHistory open(Path file) throws IOException {
+        return open(file, 1000);
+    }
+
+    /** @param forceMillis how often to force written records to disk; 0 leaves it to the OS and close() */
+    public static HandHistory open(Path file, long forceMillis) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new HandHistory(channel, forceMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public synchronized long size() {
+        return count;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Writing */
+    /* ------------------------------------------------------------ */
+
+    /** Records a state without a count, e.g. from {@link ClientConnecter#setStateListener}. */
+    @Override
+    public void onState(Endpoint endpoint, GameState state) {
+        append(endpoint, state, Double.NaN);
+    }
+
+    /** Records one state; {@code trueCount} is NaN when no count was kept. */
+    public synchronized void append(Endpoint endpoint, GameState state, double trueCount) {
+        if (closed) {
+            throw new IllegalStateException("Hand history is closed");
+        }
+        long index = count;
+        if (index < regionStart || index >= regionStart + REGION_RECORDS || regionStart < 0) {
+            mapRegion(index);
+        }
+        int at = (int) (index - regionStart) * RECORD_SIZE;
+        ByteBuffer r = region;
+        r.putLong(at, state.sessionId != null ? state.sessionId.getMostSignificantBits() : 0);
+        r.putLong(at + 8, state.sessionId != null ? state.sessionId.getLeastSignificantBits() : 0);
+        r.putLong(at + 16, System.currentTimeMillis());
+        r.put(at + 24, (byte) endpoint.ordinal());
+        r.put(at + 25, phaseCode(state.phase));
+        r.put(at + 26, outcomeCode(state.outcome));
+        r.put(at + 27, (byte) ((state.reshuffled ? FLAG_RESHUFFLED : 0) | (state.gameOver ? FLAG_GAME_OVER : 0)
+                | (state.canHit ? FLAG_CAN_HIT : 0) | (state.canStand ? FLAG_CAN_STAND : 0)));
+        int players = putCards(r, at + 44, 0, state.playerCodes, state.playerCount);
+        int dealers = putCards(r, at + 44, players, state.dealerCodes, state.dealerCount);
+        r.put(at + 28, (byte) players);
+        r.put(at + 29, (byte) dealers);
+        r.putShort(at + 30, Double.isNaN(trueCount) ? NO_COUNT
+                : (short) Math.max(-Short.MAX_VALUE, Math.min(Short.MAX_VALUE, Math.round(trueCount * 10))));
+        r.putInt(at + 32, state.currentBet);
+        r.putInt(at + 36, state.balance);
+        r.putShort(at + 40, (short) state.cardsRemaining);
+        r.put(at + 42, (byte) state.playerValue);
+        r.put(at + 43, (byte) state.dealerValue);
+        count = index + 1;
+        header.putLong(COUNT_OFFSET, count);
+    }
+
+    private static int putCards(ByteBuffer r, int cardsAt, int from, byte[] codes, int count) {
+        int n = Math.min(count, MAX_CARDS - from);
+        for (int i = 0; i < n; i++) {
+            r.put(cardsAt + from + i, codes[i]);
+        }
+        for (int i = from + n; i < MAX_CARDS && from == 0; i++) {
+            r.put(cardsAt + i, (byte) 0); // a reused region may hold old bytes
+        }
+        return n;
+    }
+
+    static byte phaseCode(String phase) {
+        if (phase == null) {
+            return PHASE_UNKNOWN;
+        }
+        switch (phase) {
+            case "BETTING":
+                return PHASE_BETTING;
+            case "PLAYER_TURN":
+                return PHASE_PLAYER_TURN;
+            case "RESOLVED":
+                return PHASE_RESOLVED;
+            default:
+                return PHASE_UNKNOWN;
+        }
+    }
+
+    static byte outcomeCode(String outcome) {
+        if (outcome == null) {
+            return 0;
+        }
+        for (Simulator.Outcome o : Simulator.Outcome.values()) {
+            if (o.name().equals(outcome)) {
+                return (byte) (o.ordinal() + 1);
+            }
+        }
+        return 0;
+    }
+
+    private void mapRegion(long index) {
+        try {
+            previousRegion = region;
+            regionStart = index - index % REGION_RECORDS;
+            region = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + regionStart * RECORD_SIZE,
+                    REGION_BYTES);
+            region.order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Durability */
+    /* ------------------------------------------------------------ */
+
+    /** Writes every record appended so far, and the header, to disk. */
+    public void force() {
+        MappedByteBuffer current;
+        MappedByteBuffer previous;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            current = region;
+            previous = previousRegion;
+            previousRegion = null;
+        }
+        // msync runs outside the lock so appends carry on meanwhile
+        if (previous != null) {
+            previous.force();
+        }
+        if (current != null) {
+            current.force();
+        }
+        header.force();
+    }
+
+    private void forceQuietly() {
+        try {
+            force();
+        } catch (RuntimeException e) {
+            // the next tick or close() tries again
+        }
+    }
+
+    /** Forces everything to disk and trims the file to the records written. */
+    @Override
+    public void close() throws IOException {
+        if (forcer != null) {
+            forcer.shutdownNow();
+        }
+        force();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            region = null;
+            previousRegion = null;
+        }
+        try {
+            channel.truncate(HEADER_SIZE + count * RECORD_SIZE);
+        } catch (IOException e) {
+            // some platforms refuse while the file is still mapped; readers use the header count
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,171 @@
+package client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Random access to the records of a {@link HandHistory} file. The whole file
+ * is mapped read-only, in 1 GB segments, and each accessor reads one field
+ * of record {@code i} straight from the mapping. A scan that touches only a
+ * few fields never builds objects, so millions of records take well under a
+ * second once the file is in the page cache.
+ *
+ * Only records the header counts as committed are visible. Nothing here is
+ * synchronized; one reader may be shared by threads that only read.
+ */
+public final class HandHistoryReader implements Closeable {
+    private static final int SEGMENT_SHIFT = 24; // records per segment: 16M x 64 bytes = 1 GB
+    private static final int SEGMENT_RECORDS = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_RECORDS - 1;
+    private static final Endpoint[] ENDPOINTS = Endpoint.values();
+    private static final Simulator.Outcome[] OUTCOMES = Simulator.Outcome.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    private HandHistoryReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HandHistory.HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != HandHistory.MAGIC || header.getInt(8) != HandHistory.RECORD_SIZE) {
+            throw new IOException("Not a hand history file");
+        }
+        long fileRecords = (channel.size() - HandHistory.HEADER_SIZE) / HandHistory.RECORD_SIZE;
+        size = Math.min(header.getLong(HandHistory.COUNT_OFFSET), fileRecords);
+        segments = new MappedByteBuffer[(int) ((size + SEGMENT_RECORDS - 1) >>> SEGMENT_SHIFT)];
+        for (int s = 0; s < segments.length; s++) {
+            long first = (long) s << SEGMENT_SHIFT;
+            long records = Math.min(SEGMENT_RECORDS, size - first);
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HandHistory.HEADER_SIZE + first * HandHistory.RECORD_SIZE, records * HandHistory.RECORD_SIZE);
+            segments[s].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    public static HandHistoryReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new HandHistoryReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Number of records. */
+    public long size() {
+        return size;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Fields of record i */
+    /* ------------------------------------------------------------ */
+    private MappedByteBuffer segment(long i) {
+        return segments[(int) (i >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(long i) {
+        return (int) (i & SEGMENT_MASK) * HandHistory.RECORD_SIZE;
+    }
+
+    public long sessionHigh(long i) {
+        return segment(i).getLong(offset(i));
+    }
+
+    public long sessionLow(long i) {
+        return segment(i).getLong(offset(i) + 8);
+    }
+
+    public UUID sessionId(long i) {
+        return new UUID(sessionHigh(i), sessionLow(i));
+    }
+
+    /** Epoch millis when the state was recorded. */
+    public long time(long i) {
+        return segment(i).getLong(offset(i) + 16);
+    }
+
+    public Endpoint endpoint(long i) {
+        return ENDPOINTS[segment(i).get(offset(i) + 24)];
+    }
+
+    /** One of the {@code HandHistory.PHASE_*} codes. */
+    public int phase(long i) {
+        return segment(i).get(offset(i) + 25);
+    }
+
+    /** The outcome, or null while the hand is still being played. */
+    public Simulator.Outcome outcome(long i) {
+        int code = segment(i).get(offset(i) + 26);
+        return code == 0 ? null : OUTCOMES[code - 1];
+    }
+
+    /** The {@code HandHistory.FLAG_*} bits. */
+    public int flags(long i) {
+        return segment(i).get(offset(i) + 27);
+    }
+
+    public boolean reshuffled(long i) {
+        return (flags(i) & HandHistory.FLAG_RESHUFFLED) != 0;
+    }
+
+    public boolean gameOver(long i) {
+        return (flags(i) & HandHistory.FLAG_GAME_OVER) != 0;
+    }
+
+    public int playerCardCount(long i) {
+        return segment(i).get(offset(i) + 28);
+    }
+
+    public int dealerCardCount(long i) {
+        return segment(i).get(offset(i) + 29);
+    }
+
+    /** True count times ten, or {@link HandHistory#NO_COUNT}. */
+    public int trueCountTenths(long i) {
+        return segment(i).getShort(offset(i) + 30);
+    }
+
+    public int bet(long i) {
+        return segment(i).getInt(offset(i) + 32);
+    }
+
+    public int balance(long i) {
+        return segment(i).getInt(offset(i) + 36);
+    }
+
+    public int cardsRemaining(long i) {
+        return segment(i).getShort(offset(i) + 40);
+    }
+
+    public int playerValue(long i) {
+        return segment(i).get(offset(i) + 42);
+    }
+
+    /** The dealer's value, or -1 while the hole card is hidden. */
+    public int dealerValue(long i) {
+        return segment(i).get(offset(i) + 43);
+    }
+
+    /** The player's k-th card as a {@link Card#code} value. */
+    public int playerCard(long i, int k) {
+        return segment(i).get(offset(i) + 44 + k);
+    }
+
+    /** The dealer's k-th card as a {@link Card#code} value; {@link Card#HIDDEN_CODE} for the hole card. */
+    public int dealerCard(long i, int k) {
+        return segment(i).get(offset(i) + 44 + playerCardCount(i) + k);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
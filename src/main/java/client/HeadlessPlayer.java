@@ -0,0 +1,285 @@
+package client;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays many sessions at once with no human in the loop. Every session runs
+ * on its own virtual thread, so blocking on the server costs no platform thread.
+ *
+ * Decisions come from {@link StrategyEngine}, using each session's Hi-Lo
+ * true count for index plays unless {@code --basic} is given. With
+ * {@code --ev} every decision is instead the exact hit/stand EV for the
+ * cards left in that session's shoe.
+ *
+ * Bets are flat unless {@code --ramp} names a {@link BetRamp}; the ramp sees
+ * the session's true count and {@code --bankroll} plus the server balance.
+ *
+ * Request counts and latencies per endpoint are published over JMX (see
+ * {@link ClientMetrics}) and printed every {@code --metrics} seconds.
+ *
+ * The connecter refills one GameState per session in place (see
+ * {@link ClientConnecter#setReuseStates}); {@code --reuse-states false} turns
+ * that off.
+ *
+ * With {@code --history FILE} every state is appended to a
+ * {@link HandHistory}, along with the true count the player saw.
+ *
+ * With {@code --adaptive} requests go through a {@link ConcurrencyLimiter},
+ * which backs off when the server's latency climbs or it starts refusing
+ * requests, so many sessions don't all pile onto a struggling server.
+ *
+ * Usage: HeadlessPlayer [--sessions N] [--hands N] [--bet N] [--url URL]
+ * [--user NAME] [--password PASS] [--basic] [--ev] [--ramp SPEC] [--bankroll N]
+ * [--metrics SECONDS] [--history FILE] [--reuse-states true|false]
+ * [--adaptive]
+ */
+public class HeadlessPlayer {
+    // -Dblackjack.url=http://localhost:8080/api/blackjack to play against StandInServer
+    private static final String BASE_URL = System.getProperty("blackjack.url",
+            "http://euclid.knox.edu:8080/api/blackjack");
+    private static final String USERNAME = "spant"; // replace with your username
+    private static final String PASSWORD = "2ec6db"; // replace with your from the file posted to Classroom
+
+    private final ClientConnecter clientConnecter;
+    private final int handsPerSession;
+    private final BetRamp ramp;
+    private long bankroll = 2000;
+    private final StrategyEngine strategy = new StrategyEngine();
+    private boolean useCount = true;
+    // EV calculators are large and single-threaded; sessions borrow one per decision
+    private BlockingQueue<EvCalculator> evCalculators;
+    private final LongAdder handsPlayed = new LongAdder();
+    private HandHistory history;
+
+    public HeadlessPlayer(ClientConnecter clientConnecter, int handsPerSession, int bet) {
+        this(clientConnecter, handsPerSession, BetRamp.flat(bet));
+    }
+
+    public HeadlessPlayer(ClientConnecter clientConnecter, int handsPerSession, BetRamp ramp) {
+        this.clientConnecter = clientConnecter;
+        this.handsPerSession = handsPerSession;
+        this.ramp = ramp;
+    }
+
+    /** What the ramp treats as the bankroll before any winnings or losses. */
+    public void setBankroll(long bankroll) {
+        this.bankroll = bankroll;
+    }
+
+    /** Appends every state each session sees to this log; null to stop. */
+    public void setHistory(HandHistory history) {
+        this.history = history;
+    }
+
+    public void setUseCount(boolean useCount) {
+        this.useCount = useCount;
+    }
+
+    public void setUseEv(boolean useEv) {
+        if (!useEv) {
+            evCalculators = null;
+            return;
+        }
+        int n = Runtime.getRuntime().availableProcessors();
+        evCalculators = new ArrayBlockingQueue<>(n);
+        for (int i = 0; i < n; i++) {
+            evCalculators.add(new EvCalculator());
+        }
+    }
+
+    /** What one session ended up with. */
+    public static class SessionResult {
+        public UUID sessionId;
+        public int hands;
+        public int balance;
+        /** The bankroll could no longer cover the minimum bet, so the session stopped early. */
+        public boolean ruined;
+        public Exception error;
+    }
+
+    /** Plays one session start to finish on the calling thread. */
+    public SessionResult playSession() {
+        SessionResult result = new SessionResult();
+        try {
+            CardCounter counter = new CardCounter(CountingSystem.HI_LO);
+            Decision decision = new Decision(counter);
+            GameState state = clientConnecter.startGame();
+            observe(counter, Endpoint.START, state);
+            result.sessionId = state.sessionId;
+            for (int i = 0; i < handsPerSession; i++) {
+                int bet = ramp.bet(counter.getTrueCount(), bankroll + state.balance);
+                if (bet == 0) {
+                    result.ruined = true;
+                    break;
+                }
+                state = clientConnecter.placeBet(result.sessionId, bet);
+                observe(counter, Endpoint.BET, state);
+                while (!state.gameOver && state.canHit) {
+                    if (decision.shouldHit(state)) {
+                        state = clientConnecter.hit(result.sessionId);
+                        observe(counter, Endpoint.HIT, state);
+                    } else {
+                        state = clientConnecter.stand(result.sessionId);
+                        observe(counter, Endpoint.STAND, state);
+                    }
+                }
+                result.hands++;
+                result.balance = state.balance;
+                handsPlayed.increment();
+                state = clientConnecter.newGame(result.sessionId);
+                observe(counter, Endpoint.RESET, state);
+            }
+            clientConnecter.finishGame(result.sessionId);
+        } catch (Exception e) {
+            result.error = e;
+        }
+        return result;
+    }
+
+    private void observe(CardCounter counter, Endpoint endpoint, GameState state) {
+        counter.observe(state);
+        HandHistory h = history;
+        if (h != null) {
+            h.append(endpoint, state, counter.getTrueCount());
+        }
+    }
+
+    /** Per-session scratch for making decisions without allocating. */
+    private class Decision {
+        final CardCounter counter;
+        final Hand hand = new Hand();
+        final int[] unseen = new int[10];
+
+        Decision(CardCounter counter) {
+            this.counter = counter;
+        }
+
+        boolean shouldHit(GameState state) throws InterruptedException {
+            if (evCalculators == null) {
+                return strategy.shouldHit(state, useCount ? counter.getTrueCount() : Double.NaN);
+            }
+            hand.fill(state.playerCodes, state.playerCount);
+            Card upcard = Card.of(state.dealerCodes[0]);
+            counter.unseenByPoints(unseen);
+            EvCalculator ev = evCalculators.take();
+            try {
+                return ev.shouldHit(hand, upcard, unseen);
+            } finally {
+                evCalculators.put(ev);
+            }
+        }
+    }
+
+    /** Runs {@code sessions} sessions concurrently, one virtual thread each. */
+    public List<SessionResult> playSessions(int sessions) throws Exception {
+        List<Future<SessionResult>> futures = new ArrayList<>(sessions);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                futures.add(executor.submit(this::playSession));
+            }
+        }
+        List<SessionResult> results = new ArrayList<>(sessions);
+        for (Future<SessionResult> f : futures) {
+            results.add(f.get());
+        }
+        return results;
+    }
+
+    public long getHandsPlayed() {
+        return handsPlayed.sum();
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Main */
+    /* ------------------------------------------------------------ */
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String key = args[i].substring(2);
+            String value = (i + 1 < args.length && !args[i + 1].startsWith("--")) ? args[++i] : "true";
+            options.put(key, value);
+        }
+        return options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int sessions = Integer.parseInt(options.getOrDefault("sessions", "100"));
+        int hands = Integer.parseInt(options.getOrDefault("hands", "100"));
+        int bet = Integer.parseInt(options.getOrDefault("bet", "10"));
+        String url = options.getOrDefault("url", BASE_URL);
+
+        ClientConnecter clientConnecter = new ClientConnecter(url,
+                options.getOrDefault("user", USERNAME), options.getOrDefault("password", PASSWORD));
+        clientConnecter.setReuseStates(Boolean.parseBoolean(options.getOrDefault("reuse-states", "true")));
+        if (Boolean.parseBoolean(options.getOrDefault("adaptive", "false"))) {
+            clientConnecter.setConcurrencyLimiter(new ConcurrencyLimiter());
+        }
+        BetRamp ramp = options.containsKey("ramp") ? BetRamp.parse(options.get("ramp")) : BetRamp.flat(bet);
+        HeadlessPlayer player = new HeadlessPlayer(clientConnecter, hands, ramp);
+        player.setBankroll(Long.parseLong(options.getOrDefault("bankroll", "2000")));
+        player.setUseCount(!options.containsKey("basic"));
+        player.setUseEv(options.containsKey("ev"));
+        int metricsEvery = Integer.parseInt(options.getOrDefault("metrics", "30"));
+        clientConnecter.getMetrics().register("headless");
+        HandHistory history = options.containsKey("history") ? HandHistory.open(Path.of(options.get("history")))
+                : null;
+        player.setHistory(history);
+
+        System.out.println("Playing " + sessions + " sessions x " + hands + " hands against " + url
+                + ", betting " + ramp);
+        long start = System.nanoTime();
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "headless-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        progress.scheduleAtFixedRate(() -> {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("... %d hands, %.1f hands/sec%n", player.getHandsPlayed(),
+                    player.getHandsPlayed() / seconds);
+        }, 5, 5, TimeUnit.SECONDS);
+        if (metricsEvery > 0) {
+            progress.scheduleAtFixedRate(() -> System.out.print(clientConnecter.getMetrics().getSummary()),
+                    metricsEvery, metricsEvery, TimeUnit.SECONDS);
+        }
+
+        List<SessionResult> results = player.playSessions(sessions);
+        progress.shutdownNow();
+        if (history != null) {
+            history.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int failed = 0;
+        long totalBalance = 0;
+        for (SessionResult r : results) {
+            totalBalance += r.balance;
+            if (r.error != null) {
+                failed++;
+            }
+            System.out.println("Session " + r.sessionId + ": hands " + r.hands + ", balance " + r.balance
+                    + (r.ruined ? ", ruined" : "") + (r.error != null ? ", error: " + r.error : ""));
+        }
+        long totalHands = player.getHandsPlayed();
+        System.out.printf("%d hands in %.2f s = %.1f hands/sec%n", totalHands, seconds, totalHands / seconds);
+        System.out.println("Sessions: " + sessions + " (" + failed + " failed), total balance: " + totalBalance);
+        System.out.print(clientConnecter.getMetrics().getSummary());
+    }
+}
@@ -0,0 +1,468 @@
+package client;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Answers questions about a {@link HandHistory} file in one parallel pass:
+ * <ul>
+ * <li>EV per unit bet by true count at the time of the bet,</li>
+ * <li>player and dealer bust rates by dealer upcard,</li>
+ * <li>the worst balance drawdown of each session.</li>
+ * </ul>
+ * The record range is split into segments with fork/join. Each segment is
+ * scanned on its own and reads only the fields it needs, straight from the
+ * mapped file. Then the partial results are merged in file order. Every
+ * partial is built to merge that way:
+ * <ul>
+ * <li>a session's balance path becomes (peak, lowest, worst drawdown);</li>
+ * <li>a hand whose bet was placed in an earlier segment waits, and gets its
+ * count from the segment to its left.</li>
+ * </ul>
+ *
+ * A hand is counted once, on the bet, hit or stand that resolved it.
+ * Resumes and resets repeat that state and are skipped.
+ *
+ * Usage: HistoryQuery --file PATH [--session UUID] [--top N]
+ */
+public class HistoryQuery {
+    static final int LEAF_RECORDS = 1 << 16;
+    static final int MIN_COUNT = -10;
+    static final int MAX_COUNT = 10;
+    static final int UNKNOWN_BUCKET = MAX_COUNT - MIN_COUNT + 1;
+    private static final int UNSEEN = Integer.MIN_VALUE; // no BETTING record yet for the session
+
+    /** The merged answer, or one segment's share of it. */
+    public static final class Result {
+        // by true-count bucket: MIN_COUNT..MAX_COUNT, then UNKNOWN_BUCKET
+        final long[] hands = new long[UNKNOWN_BUCKET + 1];
+        final long[] wagered = new long[UNKNOWN_BUCKET + 1];
+        final long[] net = new long[UNKNOWN_BUCKET + 1];
+        // per-hand return (won / bet) and its square, for the standard error
+        final double[] returns = new double[UNKNOWN_BUCKET + 1];
+        final double[] returnSquares = new double[UNKNOWN_BUCKET + 1];
+        // by upcard points, 1 (ace) to 10
+        final long[] upcardHands = new long[10];
+        final long[] playerBusts = new long[10];
+        final long[] dealerPlayed = new long[10];
+        final long[] dealerBusts = new long[10];
+        final Sessions sessions = new Sessions();
+        // resolved hands whose bet came before this segment
+        int pending;
+        int[] pendingSlot = new int[16];
+        int[] pendingBet = new int[16];
+        int[] pendingNet = new int[16];
+        long records;
+
+        void addHand(int bucket, int bet, int won) {
+            hands[bucket]++;
+            wagered[bucket] += bet;
+            net[bucket] += won;
+            double r = bet == 0 ? 0 : won / (double) bet;
+            returns[bucket] += r;
+            returnSquares[bucket] += r * r;
+        }
+
+        void addPending(int slot, int bet, int won) {
+            if (pending == pendingSlot.length) {
+                pendingSlot = Arrays.copyOf(pendingSlot, pending * 2);
+                pendingBet = Arrays.copyOf(pendingBet, pending * 2);
+                pendingNet = Arrays.copyOf(pendingNet, pending * 2);
+            }
+            pendingSlot[pending] = slot;
+            pendingBet[pending] = bet;
+            pendingNet[pending] = won;
+            pending++;
+        }
+
+        /** Folds in the result for the records right after this one's. */
+        void merge(Result right) {
+            records += right.records;
+            for (int b = 0; b <= UNKNOWN_BUCKET; b++) {
+                hands[b] += right.hands[b];
+                wagered[b] += right.wagered[b];
+                net[b] += right.net[b];
+                returns[b] += right.returns[b];
+                returnSquares[b] += right.returnSquares[b];
+            }
+            for (int u = 0; u < 10; u++) {
+                upcardHands[u] += right.upcardHands[u];
+                playerBusts[u] += right.playerBusts[u];
+                dealerPlayed[u] += right.dealerPlayed[u];
+                dealerBusts[u] += right.dealerBusts[u];
+            }
+            Sessions r = right.sessions;
+            int[] toLeft = new int[r.size];
+            for (int s = 0; s < r.size; s++) {
+                toLeft[s] = sessions.slot(r.high[s], r.low[s]);
+            }
+            // the right side's waiting hands were bet under this side's last count
+            for (int p = 0; p < right.pending; p++) {
+                int slot = toLeft[right.pendingSlot[p]];
+                int count = sessions.lastCount[slot];
+                if (count == UNSEEN) {
+                    addPending(slot, right.pendingBet[p], right.pendingNet[p]);
+                } else {
+                    addHand(bucket(count), right.pendingBet[p], right.pendingNet[p]);
+                }
+            }
+            for (int s = 0; s < r.size; s++) {
+                sessions.append(toLeft[s], r, s);
+            }
+        }
+
+        /** Hands with no BETTING record before them in the file go in the unknown bucket. */
+        void finish() {
+            for (int p = 0; p < pending; p++) {
+                addHand(UNKNOWN_BUCKET, pendingBet[p], pendingNet[p]);
+            }
+            pending = 0;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getHands() {
+            long sum = 0;
+            for (long h : hands) {
+                sum += h;
+            }
+            return sum;
+        }
+
+        public int getSessions() {
+            return sessions.size;
+        }
+
+        /** Net won per unit bet for true counts in [count, count + 1), NaN without hands. */
+        public double getEv(int count) {
+            int b = bucket(count * 10);
+            return wagered[b] == 0 ? Double.NaN : net[b] / (double) wagered[b];
+        }
+
+        /** The worst peak-to-trough balance drop in this session, or -1 if it isn't in the file. */
+        public long getMaxDrawdown(UUID sessionId) {
+            int s = sessions.find(sessionId.getMostSignificantBits(), sessionId.getLeastSignificantBits());
+            return s < 0 ? -1 : sessions.drawdown[s];
+        }
+
+        public String evTable() {
+            StringBuilder out = new StringBuilder(String.format("%-8s %10s %12s %9s %8s%n",
+                    "TC", "hands", "wagered", "EV/unit", "+/-"));
+            for (int b = 0; b <= UNKNOWN_BUCKET; b++) {
+                if (hands[b] == 0) {
+                    continue;
+                }
+                String label = b == UNKNOWN_BUCKET ? "unknown"
+                        : b == 0 ? "<=" + MIN_COUNT
+                        : b == UNKNOWN_BUCKET - 1 ? ">=" + MAX_COUNT
+                        : String.format("%+d", b + MIN_COUNT);
+                double meanReturn = net[b] / (double) wagered[b];
+                // standard error of the per-hand return, as a rough guide
+                double perHand = returns[b] / hands[b];
+                double variance = Math.max(0, returnSquares[b] / hands[b] - perHand * perHand);
+                out.append(String.format("%-8s %,10d %,12d %+8.2f%% %7.2f%%%n", label, hands[b], wagered[b],
+                        meanReturn * 100, Math.sqrt(variance / hands[b]) * 100));
+            }
+            return out.toString();
+        }
+
+        public String bustTable() {
+            StringBuilder out = new StringBuilder(String.format("%-6s %10s %12s %12s%n",
+                    "upcard", "hands", "player bust", "dealer bust"));
+            for (int u = 0; u < 10; u++) {
+                if (upcardHands[u] == 0) {
+                    continue;
+                }
+                out.append(String.format("%-6s %,10d %11.1f%% %11.1f%%%n", u == 0 ? "A" : String.valueOf(u + 1),
+                        upcardHands[u], playerBusts[u] * 100.0 / upcardHands[u],
+                        dealerPlayed[u] == 0 ? 0 : dealerBusts[u] * 100.0 / dealerPlayed[u]));
+            }
+            return out.toString();
+        }
+
+        public String drawdownTable(int top) {
+            Sessions s = sessions;
+            Integer[] order = new Integer[s.size];
+            double sum = 0;
+            for (int i = 0; i < s.size; i++) {
+                order[i] = i;
+                sum += s.drawdown[i];
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(s.drawdown[b], s.drawdown[a]));
+            StringBuilder out = new StringBuilder(String.format("%,d sessions, mean max drawdown %.1f%n",
+                    s.size, s.size == 0 ? 0 : sum / s.size));
+            out.append(String.format("%-36s %7s %9s %9s %9s%n", "session", "hands", "drawdown", "peak", "final"));
+            for (int i = 0; i < Math.min(top, s.size); i++) {
+                int k = order[i];
+                out.append(String.format("%-36s %,7d %,9d %,9d %,9d%n", new UUID(s.high[k], s.low[k]), s.hands[k],
+                        s.drawdown[k], s.peak[k], s.last[k]));
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * Per-session columns keyed by session id in an open-addressing table, so a
+     * lookup costs two long compares and no UUID.
+     */
+    static final class Sessions {
+        int size;
+        long[] high = new long[16];
+        long[] low = new long[16];
+        int[] hands = new int[16];
+        int[] lastCount = new int[16];
+        // the balance path: highest, lowest, last, and the worst drop from an earlier high
+        long[] peak = new long[16];
+        long[] lowest = new long[16];
+        long[] last = new long[16];
+        long[] drawdown = new long[16];
+        private int[] table = new int[32]; // slot + 1, 0 when empty
+
+        int find(long h, long l) {
+            int mask = table.length - 1;
+            for (int i = hash(h, l) & mask;; i = (i + 1) & mask) {
+                int s = table[i] - 1;
+                if (s < 0) {
+                    return -1;
+                }
+                if (high[s] == h && low[s] == l) {
+                    return s;
+                }
+            }
+        }
+
+        /** The session's slot, added with no records if new. */
+        int slot(long h, long l) {
+            int mask = table.length - 1;
+            int i = hash(h, l) & mask;
+            for (;; i = (i + 1) & mask) {
+                int s = table[i] - 1;
+                if (s < 0) {
+                    break;
+                }
+                if (high[s] == h && low[s] == l) {
+                    return s;
+                }
+            }
+            if (size == high.length) {
+                grow();
+            }
+            int s = size++;
+            high[s] = h;
+            low[s] = l;
+            lastCount[s] = UNSEEN;
+            peak[s] = Long.MIN_VALUE;
+            lowest[s] = Long.MAX_VALUE;
+            table[i] = s + 1;
+            if (size * 2 > table.length) {
+                rehash(table.length * 2);
+            }
+            return s;
+        }
+
+        void balance(int s, long balance) {
+            if (peak[s] != Long.MIN_VALUE) {
+                drawdown[s] = Math.max(drawdown[s], peak[s] - balance);
+            }
+            peak[s] = Math.max(peak[s], balance);
+            lowest[s] = Math.min(lowest[s], balance);
+            last[s] = balance;
+        }
+
+        /** Appends slot {@code rs} of the sessions that come after these in the file. */
+        void append(int s, Sessions right, int rs) {
+            hands[s] += right.hands[rs];
+            if (right.lastCount[rs] != UNSEEN) {
+                lastCount[s] = right.lastCount[rs];
+            }
+            if (right.peak[rs] == Long.MIN_VALUE) {
+                return;
+            }
+            long dropAcross = peak[s] == Long.MIN_VALUE ? 0 : peak[s] - right.lowest[rs];
+            drawdown[s] = Math.max(Math.max(drawdown[s], right.drawdown[rs]), dropAcross);
+            peak[s] = Math.max(peak[s], right.peak[rs]);
+            lowest[s] = Math.min(lowest[s], right.lowest[rs]);
+            last[s] = right.last[rs];
+        }
+
+        private void grow() {
+            int n = high.length * 2;
+            high = Arrays.copyOf(high, n);
+            low = Arrays.copyOf(low, n);
+            hands = Arrays.copyOf(hands, n);
+            lastCount = Arrays.copyOf(lastCount, n);
+            peak = Arrays.copyOf(peak, n);
+            lowest = Arrays.copyOf(lowest, n);
+            last = Arrays.copyOf(last, n);
+            drawdown = Arrays.copyOf(drawdown, n);
+        }
+
+        private void rehash(int capacity) {
+            table = new int[capacity];
+            int mask = capacity - 1;
+            for (int s = 0; s < size; s++) {
+                int i = hash(high[s], low[s]) & mask;
+                while (table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = s + 1;
+            }
+        }
+
+        private static int hash(long h, long l) {
+            long x = (h ^ Long.rotateLeft(l, 32)) * 0x9E3779B97F4A7C15L;
+            return (int) (x ^ (x >>> 32));
+        }
+    }
+
+    static int bucket(int countTenths) {
+        if (countTenths == HandHistory.NO_COUNT) {
+            return UNKNOWN_BUCKET;
+        }
+        int count = Math.floorDiv(countTenths, 10);
+        return Math.max(MIN_COUNT, Math.min(MAX_COUNT, count)) - MIN_COUNT;
+    }
+
+    // the server's payouts: blackjack 3:2 rounded down, everything else even money
+    static int won(Simulator.Outcome outcome, int bet) {
+        switch (outcome) {
+            case PLAYER_BLACKJACK:
+                return bet * 3 / 2;
+            case PLAYER_WINS:
+                return bet;
+            case DEALER_WINS:
+                return -bet;
+            default:
+                return 0;
+        }
+    }
+
+    private static class ScanTask extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+        private final HandHistoryReader reader;
+        private final long from;
+        private final long to;
+        private final UUID only;
+        private final int leafRecords;
+
+        ScanTask(HandHistoryReader reader, long from, long to, UUID only, int leafRecords) {
+            this.reader = reader;
+            this.from = from;
+            this.to = to;
+            this.only = only;
+            this.leafRecords = leafRecords;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= leafRecords) {
+                return scan();
+            }
+            long mid = (from + to) >>> 1;
+            ScanTask right = new ScanTask(reader, mid, to, only, leafRecords);
+            right.fork();
+            Result result = new ScanTask(reader, from, mid, only, leafRecords).compute();
+            result.merge(right.join());
+            return result;
+        }
+
+        private Result scan() {
+            HandHistoryReader r = reader;
+            Result result = new Result();
+            Sessions sessions = result.sessions;
+            result.records = to - from;
+            for (long i = from; i < to; i++) {
+                long high = r.sessionHigh(i);
+                long low = r.sessionLow(i);
+                if (only != null && (high != only.getMostSignificantBits() || low != only.getLeastSignificantBits())) {
+                    continue;
+                }
+                int s = sessions.slot(high, low);
+                sessions.balance(s, r.balance(i));
+                int phase = r.phase(i);
+                if (phase == HandHistory.PHASE_BETTING) {
+                    sessions.lastCount[s] = r.trueCountTenths(i);
+                    continue;
+                }
+                Endpoint endpoint = r.endpoint(i);
+                if (phase != HandHistory.PHASE_RESOLVED
+                        || (endpoint != Endpoint.BET && endpoint != Endpoint.HIT && endpoint != Endpoint.STAND)) {
+                    continue;
+                }
+                Simulator.Outcome outcome = r.outcome(i);
+                if (outcome == null) {
+                    continue;
+                }
+                sessions.hands[s]++;
+                int bet = r.bet(i);
+                int won = won(outcome, bet);
+                int count = sessions.lastCount[s];
+                if (count == UNSEEN) {
+                    result.addPending(s, bet, won);
+                } else {
+                    result.addHand(bucket(count), bet, won);
+                }
+
+                int upcard = r.dealerCardCount(i) > 0 ? r.dealerCard(i, 0) : Card.NO_CODE;
+                if (upcard < 0) {
+                    continue;
+                }
+                int u = Card.points(upcard) - 1;
+                result.upcardHands[u]++;
+                int player = r.playerValue(i);
+                if (player > 21) {
+                    result.playerBusts[u]++;
+                } else if (endpoint != Endpoint.BET) {
+                    // naturals settle on the deal; otherwise the dealer played out
+                    result.dealerPlayed[u]++;
+                    if (r.dealerValue(i) > 21) {
+                        result.dealerBusts[u]++;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /** Scans the whole file, or only one session's records when {@code only} isn't null. */
+    public static Result run(HandHistoryReader reader, UUID only) {
+        return run(reader, only, LEAF_RECORDS);
+    }
+
+    // a small leaf splits even a small file into many segments, to exercise the merges
+    static Result run(HandHistoryReader reader, UUID only, int leafRecords) {
+        Result result = ForkJoinPool.commonPool().invoke(new ScanTask(reader, 0, reader.size(), only, leafRecords));
+        result.finish();
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = HeadlessPlayer.parseArgs(args);
+        if (!options.containsKey("file")) {
+            throw new IllegalArgumentException("Usage: HistoryQuery --file PATH [--session UUID] [--top N]");
+        }
+        UUID only = options.containsKey("session") ? UUID.fromString(options.get("session")) : null;
+        int top = Integer.parseInt(options.getOrDefault("top", "10"));
+
+        try (HandHistoryReader reader = HandHistoryReader.open(Path.of(options.get("file")))) {
+            long start = System.nanoTime();
+            Result result = run(reader, only);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%,d records, %,d hands, %,d sessions in %.2f s (%,.0f records/s)%n",
+                    result.getRecords(), result.getHands(), result.getSessions(), seconds,
+                    result.getRecords() / seconds);
+            System.out.println();
+            System.out.print(result.evTable());
+            System.out.println();
+            System.out.print(result.bustTable());
+            System.out.println();
+            System.out.print(result.drawdownTable(top));
+        }
+    }
+}
@@ -13,5 +13,12 @@ public class JsonUtil {
                 return LocalDateTime.parse(json.getAsString(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
             }
         })
+        .registerTypeAdapter(LocalDateTime.class, new JsonSerializer<LocalDateTime>() {
+            public JsonElement serialize(LocalDateTime time, java.lang.reflect.Type type,
+                                         JsonSerializationContext context) {
+                return new JsonPrimitive(time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            }
+        })
+        .registerTypeAdapter(GameState.class, GameStateAdapter.INSTANCE)
         .create();
 }
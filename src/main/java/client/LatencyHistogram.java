@@ -0,0 +1,128 @@
+package client;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A log-linear histogram of nanosecond values in the style of HdrHistogram.
+ * Every power of two is split into {@link #SUB_BUCKETS} equal buckets, so any
+ * recorded value is known to within 1/64 (about 1.6%) from 1 ns up to
+ * {@link #MAX_VALUE}. Larger values are clamped.
+ *
+ * Recording is an array increment and three striped adders, with no locks and no
+ * allocation. Percentiles are read by walking the buckets, which is cheap
+ * enough for a JMX poll or a periodic summary. Readers racing with writers
+ * may see a count a few samples behind, which is fine for monitoring.
+ */
+public class LatencyHistogram {
+    static final int SUB_BITS = 6;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /** Largest value kept exactly; about 18 minutes. */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    // values of 2^k..2^(k+1)-1 are counted in buckets 2^(k-SUB_BITS) wide
+    private static final int MAX_SHIFT = 39 - SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_SHIFT + 2) * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // the largest value that lands in this bucket
+    static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index - (long) shift * SUB_BUCKETS;
+        return (mantissa << shift) + (1L << shift) - 1;
+    }
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records a value from a loop that meant to start a request every
+     * {@code expectedInterval} ns. A value longer than that also records the
+     * requests that would have started while it was stuck, each waiting a
+     * little less. That corrects for coordinated omission.
+     */
+    public void recordCorrected(long nanos, long expectedInterval) {
+        record(nanos);
+        if (expectedInterval <= 0) {
+            return;
+        }
+        for (long missed = nanos - expectedInterval; missed >= expectedInterval; missed -= expectedInterval) {
+            record(missed);
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    /** The value at this percentile (0-100], to bucket precision; 0 when empty. */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /** Adds another histogram's samples to this one. */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) {
+            long n = other.counts.get(i);
+            if (n != 0) {
+                counts.addAndGet(i, n);
+            }
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    /** "p50 1.2 ms  p99 8.4 ms  p99.9 20.1 ms  max 31.0 ms", in milliseconds. */
+    public String summary() {
+        return String.format("p50 %.1f ms  p99 %.1f ms  p99.9 %.1f ms  max %.1f ms",
+                getValueAtPercentile(50) / 1e6, getValueAtPercentile(99) / 1e6,
+                getValueAtPercentile(99.9) / 1e6, getMax() / 1e6);
+    }
+}
@@ -0,0 +1,47 @@
+package client;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The recent latency of one endpoint: a ring of the last {@link #WINDOW}
+ * samples that any thread can add to without locking. The 95th percentile
+ * is recomputed every {@link #RECOMPUTE_EVERY} samples and cached in between.
+ */
+public class LatencyTracker {
+    static final int WINDOW = 256;
+    static final int RECOMPUTE_EVERY = 32;
+    static final int MIN_SAMPLES = 20;
+
+    private final AtomicLongArray samples = new AtomicLongArray(WINDOW);
+    private final AtomicLong count = new AtomicLong();
+    private final long[] scratch = new long[WINDOW];
+    private volatile long p95Nanos = -1;
+
+    public void record(long nanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % WINDOW), nanos);
+        if ((n + 1) % RECOMPUTE_EVERY == 0 && n + 1 >= MIN_SAMPLES) {
+            recompute(Math.min(n + 1, WINDOW));
+        }
+    }
+
+    private synchronized void recompute(long size) {
+        int n = (int) size;
+        for (int i = 0; i < n; i++) {
+            scratch[i] = samples.get(i);
+        }
+        Arrays.sort(scratch, 0, n);
+        p95Nanos = scratch[(int) Math.ceil(n * 0.95) - 1];
+    }
+
+    /** The recent p95 in nanoseconds, or -1 until there are enough samples. */
+    public long getP95Nanos() {
+        return p95Nanos;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+}
@@ -0,0 +1,264 @@
+package client;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a server at a fixed rate of rounds per second to find where the
+ * client or the server tips over. It is an open model: rounds start on a
+ * fixed schedule whether or not earlier ones have finished, the way
+ * independent players would arrive. Each round runs on its own virtual
+ * thread through one shared {@link ClientConnecter}:
+ * <ol>
+ * <li>a bet;</li>
+ * <li>hits, each with probability {@code --hit}, then a stand;</li>
+ * <li>a reset.</li>
+ * </ol>
+ * A round takes an idle session, or starts one if none is free. A session
+ * is finished after {@code --session-rounds} rounds, which sets how often
+ * start and finish appear in the mix.
+ *
+ * A round's latency is measured from when the schedule said it should
+ * start, not from when it did. So a stalled server or client shows up as
+ * latency rather than as rounds that were quietly never sent. This is the
+ * open-model form of coordinated-omission correction, the one
+ * {@link LatencyHistogram#recordCorrected} applies to closed loops. Service
+ * time, measured from the actual start, is reported next to it; the gap
+ * between the two is time spent queued. Failed rounds count in both, up to
+ * the moment they failed, so a round that times out still lands in the
+ * tail. They are also reported on their own, since quick failures pull
+ * the percentiles down. {@code --max-in-flight} caps concurrent rounds.
+ * Arrivals beyond it wait for a slot, and that wait counts against them.
+ *
+ * With {@code --adaptive} requests also pass through a
+ * {@link ConcurrencyLimiter}, to see what it settles on at each rate and
+ * what its queueing does to corrected latency.
+ *
+ * Every step in {@code --rate} runs for {@code --duration} seconds and
+ * reports throughput, errors and both sets of percentiles, plus the
+ * per-endpoint table from {@link ClientMetrics}. Without {@code --url} it
+ * starts a {@link StandInServer} in-process.
+ *
+ * Usage: LoadGenerator [--rate R1,R2,...] [--duration SECONDS] [--warmup SECONDS]
+ * [--hit P] [--session-rounds N] [--bet N] [--max-in-flight N] [--url URL]
+ * [--user NAME] [--password PASS] [--latency MS] [--jitter MS] [--adaptive]
+ */
+public class LoadGenerator {
+    private final ClientConnecter clientConnecter;
+    private final double hitProbability;
+    private final int roundsPerSession;
+    private final int bet;
+    private final Semaphore slots;
+    private final Queue<Session> idle = new ConcurrentLinkedQueue<>();
+
+    private static final class Session {
+        final UUID id;
+        int rounds;
+
+        Session(UUID id) {
+            this.id = id;
+        }
+    }
+
+    public LoadGenerator(ClientConnecter clientConnecter, double hitProbability, int roundsPerSession, int bet,
+            int maxInFlight) {
+        this.clientConnecter = clientConnecter;
+        this.hitProbability = hitProbability;
+        this.roundsPerSession = roundsPerSession;
+        this.bet = bet;
+        this.slots = new Semaphore(maxInFlight);
+    }
+
+    /** What one rate step measured. */
+    public static class StepResult {
+        public double targetRate;
+        public double seconds;
+        public long rounds;
+        public long errors;
+        public int maxInFlight;
+        public long maxDispatchLagNanos;
+        public Exception firstError;
+        /** From each round's scheduled start. */
+        public final LatencyHistogram corrected = new LatencyHistogram();
+        /** From each round's actual start. */
+        public final LatencyHistogram service = new LatencyHistogram();
+        /** From each failed round's scheduled start; these are in the two above as well. */
+        public final LatencyHistogram failedLatency = new LatencyHistogram();
+        public final ClientMetrics metrics = new ClientMetrics();
+
+        public double getThroughput() {
+            return rounds / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("target %7.1f/s  achieved %7.1f/s  rounds %,8d  errors %,d  in flight <= %,d"
+                    + "  dispatch lag <= %.1f ms%n  corrected %s%n  service   %s",
+                    targetRate, getThroughput(), rounds, errors, maxInFlight, maxDispatchLagNanos / 1e6,
+                    corrected.summary(), service.summary())
+                    + (errors > 0 ? String.format("%n  failed    %s", failedLatency.summary()) : "");
+        }
+    }
+
+    /** Runs rounds at {@code rate} per second for {@code duration}, then waits for the stragglers. */
+    public StepResult run(double rate, Duration duration) throws InterruptedException {
+        StepResult result = new StepResult();
+        result.targetRate = rate;
+        clientConnecter.setMetrics(result.metrics);
+        LongAdder done = new LongAdder();
+        LongAdder failed = new LongAdder();
+        AtomicInteger inFlight = new AtomicInteger();
+        LongAccumulator maxInFlight = new LongAccumulator(Math::max, 0);
+        long lag = 0;
+
+        long start = System.nanoTime();
+        long rounds = (long) (rate * duration.toNanos() / 1e9);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long n = 0; n < rounds; n++) {
+                long intended = start + (long) (n * 1e9 / rate);
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                slots.acquire();
+                lag = Math.max(lag, System.nanoTime() - intended);
+                maxInFlight.accumulate(inFlight.incrementAndGet());
+                executor.execute(() -> {
+                    long began = System.nanoTime();
+                    try {
+                        playRound();
+                        done.increment();
+                    } catch (Exception e) {
+                        result.failedLatency.record(System.nanoTime() - intended);
+                        failed.increment();
+                        synchronized (result) {
+                            if (result.firstError == null) {
+                                result.firstError = e;
+                            }
+                        }
+                    } finally {
+                        long end = System.nanoTime();
+                        result.service.record(end - began);
+                        result.corrected.record(end - intended);
+                        inFlight.decrementAndGet();
+                        slots.release();
+                    }
+                });
+            }
+        }
+        result.seconds = (System.nanoTime() - start) / 1e9;
+        result.rounds = done.sum();
+        result.errors = failed.sum();
+        result.maxInFlight = (int) maxInFlight.get();
+        result.maxDispatchLagNanos = lag;
+        return result;
+    }
+
+    private void playRound() throws Exception {
+        Session session = idle.poll();
+        if (session == null) {
+            session = new Session(clientConnecter.startGame().sessionId);
+        }
+        GameState state = clientConnecter.placeBet(session.id, bet);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!state.gameOver && state.canHit) {
+            if (random.nextDouble() < hitProbability) {
+                state = clientConnecter.hit(session.id);
+            } else {
+                state = clientConnecter.stand(session.id);
+            }
+        }
+        clientConnecter.newGame(session.id);
+        if (++session.rounds >= roundsPerSession) {
+            clientConnecter.finishGame(session.id);
+        } else {
+            idle.add(session);
+        }
+    }
+
+    /** Finishes every session left idle between steps. */
+    public void finishIdle() {
+        Session session;
+        while ((session = idle.poll()) != null) {
+            try {
+                clientConnecter.finishGame(session.id);
+            } catch (Exception e) {
+                // the server keeps it unsaved; nothing else to do at exit
+            }
+        }
+    }
+
+    /** Requests per endpoint as a share of all requests, e.g. "bet 31.0%  hit 18.2% ...". */
+    static String mix(ClientMetrics metrics) {
+        long total = metrics.getRequests();
+        StringBuilder out = new StringBuilder("mix");
+        for (Endpoint endpoint : Endpoint.values()) {
+            long n = metrics.get(endpoint).getRequests();
+            if (n > 0) {
+                out.append(String.format("  %s %.1f%%", endpoint.getLabel(), n * 100.0 / total));
+            }
+        }
+        return out.toString();
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Main */
+    /* ------------------------------------------------------------ */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = HeadlessPlayer.parseArgs(args);
+        String[] rates = options.getOrDefault("rate", "50,100,200,400").split(",");
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "10")));
+        long warmup = Long.parseLong(options.getOrDefault("warmup", "3"));
+        double hit = Double.parseDouble(options.getOrDefault("hit", "0.4"));
+        int sessionRounds = Integer.parseInt(options.getOrDefault("session-rounds", "10"));
+        int bet = Integer.parseInt(options.getOrDefault("bet", "10"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "1000"));
+
+        StandInServer server = null;
+        String url = options.get("url");
+        if (url == null) {
+            server = StandInServer.start(0, Long.parseLong(options.getOrDefault("latency", "0")),
+                    Long.parseLong(options.getOrDefault("jitter", "0")), 42);
+            url = server.getBaseUrl();
+        }
+        ClientConnecter clientConnecter = new ClientConnecter(url, options.getOrDefault("user", "load"),
+                options.getOrDefault("password", "load"));
+        clientConnecter.setReuseStates(true); // keep the client's own allocation out of the picture
+        if (Boolean.parseBoolean(options.getOrDefault("adaptive", "false"))) {
+            clientConnecter.setConcurrencyLimiter(new ConcurrencyLimiter());
+        }
+        LoadGenerator generator = new LoadGenerator(clientConnecter, hit, sessionRounds, bet, maxInFlight);
+
+        System.out.printf("Load against %s: %s s per step, hit %.2f, %d rounds per session, max %d in flight%n",
+                url, duration.getSeconds(), hit, sessionRounds, maxInFlight);
+        if (warmup > 0) {
+            StepResult w = generator.run(Double.parseDouble(rates[0].trim()), Duration.ofSeconds(warmup));
+            System.out.printf("warm-up: %,d rounds, %,d errors%n", w.rounds, w.errors);
+        }
+        for (String rate : rates) {
+            StepResult result = generator.run(Double.parseDouble(rate.trim()), duration);
+            System.out.println(result);
+            System.out.println("  " + mix(result.metrics));
+            if (result.firstError != null) {
+                System.out.println("  first error: " + result.firstError);
+            }
+            System.out.print(result.metrics.getSummary());
+            System.out.println();
+        }
+        generator.finishIdle();
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
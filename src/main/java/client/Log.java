@@ -0,0 +1,245 @@
+package client;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * A small leveled logger that never makes the caller wait on the console.
+ * A call below the level returns after one field read. An enabled call claims
+ * a slot in a pre-allocated ring, stores the template and its arguments, and
+ * returns. A background thread builds the text and writes it out. So
+ * {@code "{}"} placeholders are filled in on that thread, and arguments
+ * should be values that won't change afterwards (ids, numbers, strings).
+ *
+ * When the ring is full, new messages are dropped and counted rather than
+ * blocking; the count is reported with the next message written. Whatever is
+ * still queued is written at JVM exit.
+ *
+ * The level comes from -Dblackjack.log=trace|debug|info|warn|error|off and
+ * defaults to info.
+ */
+public final class Log {
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    static final int CAPACITY = 8192; // a power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    private static volatile int threshold = Level.valueOf(
+            System.getProperty("blackjack.log", "info").toUpperCase()).ordinal();
+
+    private static final Entry[] RING = new Entry[CAPACITY];
+    private static final AtomicLong HEAD = new AtomicLong(); // next slot to claim
+    private static volatile long tail; // next slot to write
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final PrintStream OUT = System.out;
+    private static long reportedDropped; // writer only
+
+    private static final class Entry {
+        volatile long sequence = -1; // set last; the slot is readable once it equals the slot's number
+        long time;
+        Level level;
+        String logger;
+        String thread;
+        String template;
+        int args;
+        Object arg1;
+        Object arg2;
+        Supplier<String> supplier;
+        Throwable error;
+    }
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            RING[i] = new Entry();
+        }
+        Thread writer = new Thread(Log::writeLoop, "blackjack-log");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::drain, "blackjack-log-flush"));
+    }
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    public static Log get(Class<?> owner) {
+        return new Log(owner.getSimpleName());
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    /** Messages lost because the ring was full. */
+    public static long getDropped() {
+        return DROPPED.sum();
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Logging */
+    /* ------------------------------------------------------------ */
+    public void debug(String message) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            enqueue(Level.DEBUG, message, 0, null, null, null, null);
+        }
+    }
+
+    public void debug(String template, Object arg) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            enqueue(Level.DEBUG, template, 1, arg, null, null, null);
+        }
+    }
+
+    public void debug(String template, Object arg1, Object arg2) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            enqueue(Level.DEBUG, template, 2, arg1, arg2, null, null);
+        }
+    }
+
+    /** For messages that take real work to build; the supplier runs on the writer thread. */
+    public void debug(Supplier<String> message) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            enqueue(Level.DEBUG, null, 0, null, null, message, null);
+        }
+    }
+
+    public void info(String message) {
+        if (Level.INFO.ordinal() >= threshold) {
+            enqueue(Level.INFO, message, 0, null, null, null, null);
+        }
+    }
+
+    public void info(String template, Object arg) {
+        if (Level.INFO.ordinal() >= threshold) {
+            enqueue(Level.INFO, template, 1, arg, null, null, null);
+        }
+    }
+
+    public void info(String template, Object arg1, Object arg2) {
+        if (Level.INFO.ordinal() >= threshold) {
+            enqueue(Level.INFO, template, 2, arg1, arg2, null, null);
+        }
+    }
+
+    public void warn(String template, Object arg) {
+        if (Level.WARN.ordinal() >= threshold) {
+            enqueue(Level.WARN, template, 1, arg, null, null, null);
+        }
+    }
+
+    public void error(String message, Throwable error) {
+        if (Level.ERROR.ordinal() >= threshold) {
+            enqueue(Level.ERROR, message, 0, null, null, null, error);
+        }
+    }
+
+    private void enqueue(Level level, String template, int args, Object arg1, Object arg2,
+            Supplier<String> supplier, Throwable error) {
+        long slot;
+        do {
+            slot = HEAD.get();
+            if (slot - tail >= CAPACITY) {
+                DROPPED.increment();
+                return;
+            }
+        } while (!HEAD.compareAndSet(slot, slot + 1));
+
+        Entry e = RING[(int) (slot & MASK)];
+        e.time = System.currentTimeMillis();
+        e.level = level;
+        e.logger = name;
+        e.thread = Thread.currentThread().getName();
+        e.template = template;
+        e.args = args;
+        e.arg1 = arg1;
+        e.arg2 = arg2;
+        e.supplier = supplier;
+        e.error = error;
+        e.sequence = slot;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Writer */
+    /* ------------------------------------------------------------ */
+    private static void writeLoop() {
+        while (true) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(5_000_000);
+            }
+        }
+    }
+
+    // writes everything published so far; the writer thread and the exit hook share it
+    private static synchronized int drain() {
+        int written = 0;
+        StringBuilder line = new StringBuilder(128);
+        long next = tail;
+        while (true) {
+            Entry e = RING[(int) (next & MASK)];
+            if (e.sequence != next) {
+                break;
+            }
+            line.setLength(0);
+            format(e, line);
+            long dropped = DROPPED.sum();
+            if (dropped != reportedDropped) {
+                line.append(" [").append(dropped).append(" messages dropped so far]");
+                reportedDropped = dropped;
+            }
+            OUT.println(line);
+            if (e.error != null) {
+                e.error.printStackTrace(OUT);
+            }
+            // let go of the arguments before the slot is reused
+            e.arg1 = null;
+            e.arg2 = null;
+            e.supplier = null;
+            e.error = null;
+            tail = ++next;
+            written++;
+        }
+        if (written > 0) {
+            OUT.flush();
+        }
+        return written;
+    }
+
+    private static void format(Entry e, StringBuilder line) {
+        TIME.formatTo(Instant.ofEpochMilli(e.time), line);
+        line.append(' ').append(e.level).append(" [").append(e.thread).append("] ").append(e.logger)
+                .append(" - ");
+        try {
+            if (e.supplier != null) {
+                line.append(e.supplier.get());
+                return;
+            }
+            String template = e.template;
+            int used = 0;
+            int from = 0;
+            int at;
+            while (used < e.args && (at = template.indexOf("{}", from)) >= 0) {
+                line.append(template, from, at).append(used++ == 0 ? e.arg1 : e.arg2);
+                from = at + 2;
+            }
+            line.append(template, from, template.length());
+        } catch (RuntimeException failure) {
+            line.append("[message failed: ").append(failure).append(']');
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package client;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Caches one account's {@link SessionIndex} with stale-while-revalidate.
+ * A snapshot younger than the TTL is returned as is. An older one is still
+ * returned straight away, and a refresh starts in the background; listeners
+ * hear about the new snapshot when it arrives. Only the very first call has
+ * to wait for the server. At most one refresh is in flight at a time.
+ */
+public class SessionCache {
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+
+    private final ClientConnecter connecter;
+    private final long ttlNanos;
+    private SessionIndex index;
+    private long fetchedAt;
+    private CompletableFuture<SessionIndex> refresh;
+    private Consumer<SessionIndex> listener;
+
+    public SessionCache(ClientConnecter connecter) {
+        this(connecter, DEFAULT_TTL);
+    }
+
+    public SessionCache(ClientConnecter connecter, Duration ttl) {
+        this.connecter = connecter;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public ClientConnecter getConnecter() {
+        return connecter;
+    }
+
+    /** Called with every snapshot a refresh brings back, on the thread that decoded it. */
+    public synchronized void setListener(Consumer<SessionIndex> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * The cached snapshot if there is one (refreshing it in the background
+     * when it is past its TTL), otherwise the first fetch.
+     */
+    public synchronized CompletableFuture<SessionIndex> get() {
+        if (index == null) {
+            return refresh();
+        }
+        if (System.nanoTime() - fetchedAt > ttlNanos) {
+            refresh();
+        }
+        return CompletableFuture.completedFuture(index);
+    }
+
+    /** Makes the next {@link #get()} revalidate, e.g. after a session was started or saved. */
+    public synchronized void markStale() {
+        fetchedAt = System.nanoTime() - ttlNanos - 1;
+    }
+
+    private synchronized CompletableFuture<SessionIndex> refresh() {
+        if (refresh == null) {
+            CompletableFuture<SessionIndex> started = connecter.listSessionIndexAsync();
+            refresh = started;
+            started.whenComplete((fresh, error) -> {
+                Consumer<SessionIndex> notify = null;
+                synchronized (this) {
+                    refresh = null;
+                    if (error == null) {
+                        boolean replaced = index != null;
+                        index = fresh;
+                        fetchedAt = System.nanoTime();
+                        notify = replaced ? listener : null;
+                    }
+                }
+                if (notify != null) {
+                    notify.accept(fresh);
+                }
+            });
+        }
+        return refresh;
+    }
+}
@@ -0,0 +1,210 @@
+package client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * An immutable snapshot of an account's sessions, stored as columns of
+ * primitives instead of one {@link SessionSummary} per row. The response is
+ * streamed straight into the columns, so a 10k-session account costs a few
+ * arrays, not 10k objects with a UUID and a LocalDateTime each.
+ *
+ * Sort orders are permutations of the row indexes. Each is computed once per
+ * snapshot, on first use, and shared by every list model showing it.
+ */
+public final class SessionIndex {
+    public enum Sort {
+        LAST_ACCESS("Most recent"), BALANCE("Highest balance"), SERVER("Server order");
+
+        private final String label;
+
+        Sort(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private final int size;
+    private final long[] idHigh;
+    private final long[] idLow;
+    private final int[] balance;
+    private final long[] lastAccess; // epoch millis, NO_TIME if missing
+    private final int[][] orders = new int[Sort.values().length][];
+
+    private SessionIndex(int size, long[] idHigh, long[] idLow, int[] balance, long[] lastAccess) {
+        this.size = size;
+        this.idHigh = idHigh;
+        this.idLow = idLow;
+        this.balance = balance;
+        this.lastAccess = lastAccess;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public UUID getSessionId(int row) {
+        return new UUID(idHigh[row], idLow[row]);
+    }
+
+    public int getBalance(int row) {
+        return balance[row];
+    }
+
+    public long getLastAccess(int row) {
+        return lastAccess[row];
+    }
+
+    /** Row indexes in the given order; don't modify the returned array. */
+    public synchronized int[] order(Sort sort) {
+        int[] order = orders[sort.ordinal()];
+        if (order == null) {
+            order = sorted(sort);
+            orders[sort.ordinal()] = order;
+        }
+        return order;
+    }
+
+    private int[] sorted(Sort sort) {
+        if (sort == Sort.SERVER) {
+            return IntStream.range(0, size).toArray();
+        }
+        Comparator<Integer> comparator = sort == Sort.BALANCE
+                ? Comparator.comparingInt((Integer row) -> balance[row]).reversed()
+                : Comparator.comparingLong((Integer row) -> lastAccess[row]).reversed();
+        Integer[] rows = new Integer[size];
+        Arrays.setAll(rows, i -> i);
+        Arrays.sort(rows, comparator); // stable, so ties keep server order
+        return Arrays.stream(rows).mapToInt(Integer::intValue).toArray();
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Decoding */
+    /* ------------------------------------------------------------ */
+
+    /** Reads a JSON array of session summaries into columns. */
+    public static SessionIndex decode(InputStream body) throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Builder builder = new Builder();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                builder.read(reader);
+            }
+            reader.endArray();
+            return builder.build();
+        }
+    }
+
+    private static final class Builder {
+        private int size;
+        private long[] idHigh = new long[64];
+        private long[] idLow = new long[64];
+        private int[] balance = new int[64];
+        private long[] lastAccess = new long[64];
+
+        void read(JsonReader reader) throws IOException {
+            if (size == idHigh.length) {
+                int capacity = size * 2;
+                idHigh = Arrays.copyOf(idHigh, capacity);
+                idLow = Arrays.copyOf(idLow, capacity);
+                balance = Arrays.copyOf(balance, capacity);
+                lastAccess = Arrays.copyOf(lastAccess, capacity);
+            }
+            UUID id = null;
+            int rowBalance = 0;
+            long rowAccess = NO_TIME;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "sessionId":
+                        id = UUID.fromString(reader.nextString());
+                        break;
+                    case "balance":
+                        rowBalance = reader.nextInt();
+                        break;
+                    case "lastAccess":
+                        rowAccess = epochMillis(reader.nextString());
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            if (id == null) {
+                return; // nothing to reconnect to
+            }
+            idHigh[size] = id.getMostSignificantBits();
+            idLow[size] = id.getLeastSignificantBits();
+            balance[size] = rowBalance;
+            lastAccess[size] = rowAccess;
+            size++;
+        }
+
+        // LocalDateTime.parse dominates decoding at 10k rows, so the plain
+        // yyyy-MM-ddTHH:mm:ss[.fraction] shape the server sends is read by hand
+        static long epochMillis(String time) {
+            if (time.length() < 19 || time.charAt(4) != '-' || time.charAt(7) != '-' || time.charAt(10) != 'T'
+                    || time.charAt(13) != ':' || time.charAt(16) != ':') {
+                return LocalDateTime.parse(time, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                        .toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+            int millis = 0;
+            for (int i = 20, scale = 100; i < time.length() && scale > 0; i++, scale /= 10) {
+                millis += digit(time, i) * scale;
+            }
+            long day = LocalDate.of(number(time, 0, 4), number(time, 5, 2), number(time, 8, 2)).toEpochDay();
+            return day * 86_400_000L + number(time, 11, 2) * 3_600_000L + number(time, 14, 2) * 60_000L
+                    + number(time, 17, 2) * 1000L + millis;
+        }
+
+        private static int number(String s, int from, int length) {
+            int n = 0;
+            for (int i = from; i < from + length; i++) {
+                n = n * 10 + digit(s, i);
+            }
+            return n;
+        }
+
+        private static int digit(String s, int i) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                throw new DateTimeParseException("Bad lastAccess", s, i);
+            }
+            return d;
+        }
+
+        SessionIndex build() {
+            return new SessionIndex(size, idHigh, idLow, balance, lastAccess);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package client;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * A list model over a {@link SessionIndex}. Labels are built only for the
+ * rows a JList actually paints, so a 10k-session list costs nothing until
+ * it is scrolled. Sorting swaps in one of the index's cached permutations
+ * and never touches the server. Use it on the EDT.
+ */
+public class SessionListModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")
+            .withZone(ZoneOffset.UTC);
+
+    private transient SessionIndex index;
+    private SessionIndex.Sort sort;
+    private int[] order;
+
+    public SessionListModel(SessionIndex index, SessionIndex.Sort sort) {
+        this.index = index;
+        this.sort = sort;
+        this.order = index.order(sort);
+    }
+
+    public void setSort(SessionIndex.Sort sort) {
+        this.sort = sort;
+        this.order = index.order(sort);
+        fireContentsChanged(this, 0, Math.max(order.length - 1, 0));
+    }
+
+    /** Shows a newer snapshot in the current sort order. */
+    public void setIndex(SessionIndex index) {
+        int oldSize = getSize();
+        this.index = index;
+        this.order = index.order(sort);
+        if (oldSize > order.length) {
+            fireIntervalRemoved(this, order.length, oldSize - 1);
+        } else if (oldSize < order.length) {
+            fireIntervalAdded(this, oldSize, order.length - 1);
+        }
+        fireContentsChanged(this, 0, Math.max(Math.min(oldSize, order.length) - 1, 0));
+    }
+
+    public UUID getSessionId(int position) {
+        return index.getSessionId(order[position]);
+    }
+
+    @Override
+    public int getSize() {
+        return order.length;
+    }
+
+    @Override
+    public String getElementAt(int position) {
+        int row = order[position];
+        long access = index.getLastAccess(row);
+        String when = access == SessionIndex.NO_TIME ? "?" : TIME.format(Instant.ofEpochMilli(access));
+        return index.getSessionId(row).toString().substring(0, 8) + "… | Balance: " + index.getBalance(row)
+                + " | " + when;
+    }
+}
@@ -0,0 +1,346 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays hands offline, in the JVM, with the same rules as the server:
+ * single-deck shoes reshuffled below {@link StandInServer#RESHUFFLE_AT}
+ * cards, the dealer standing on all 17s, blackjacks settled before the
+ * player acts and paid 3:2, and bets a positive multiple of 10.
+ *
+ * A run is split into fork/join tasks. Each leaf plays its share of hands on
+ * its own shoe, with a {@link SplittableRandom} split from the run's seed, so
+ * results are repeatable for a given seed and parallelism.
+ *
+ * Usage: Simulator [--hands N] [--bet N] [--decks N] [--seed N]
+ * [--strategies basic,hi-lo,mimic-dealer,never-bust]
+ */
+public class Simulator {
+    /** Hands per fork/join leaf. */
+    static final long LEAF_HANDS = 1 << 20;
+
+    public enum Outcome {
+        PLAYER_WINS, PLAYER_BLACKJACK, DEALER_WINS, PUSH
+    }
+
+    /** Decides hit or stand. {@code upcardPoints} is 1 for an ace. */
+    public interface Policy {
+        boolean hit(int total, boolean soft, int upcardPoints, double trueCount);
+    }
+
+    public static void checkBet(int bet) {
+        if (bet <= 0 || bet % 10 != 0 || bet > StandInServer.MAX_BET) {
+            throw new IllegalArgumentException(
+                    "Bet must be a positive multiple of 10 up to " + StandInServer.MAX_BET + ": " + bet);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Table */
+    /* ------------------------------------------------------------ */
+
+    /**
+     * One shoe, its Hi-Lo count and the round being played. Hands are kept as
+     * hard totals and ace flags; nothing is allocated per round. Not thread-safe.
+     */
+    public static final class Table {
+        private final byte[] shoe;
+        private final SplittableRandom random;
+        private final CountingSystem system;
+        private final int decks;
+        private int top;
+        private int runningCount;
+        private Outcome lastOutcome;
+
+        public Table(int decks, SplittableRandom random) {
+            this(decks, random, CountingSystem.HI_LO);
+        }
+
+        public Table(int decks, SplittableRandom random, CountingSystem system) {
+            this.decks = decks;
+            this.random = random;
+            this.system = system;
+            this.shoe = new byte[52 * decks];
+            for (int i = 0; i < shoe.length; i++) {
+                shoe[i] = (byte) (i % 52);
+            }
+            shuffle();
+        }
+
+        public void shuffle() {
+            for (int i = shoe.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                byte tmp = shoe[i];
+                shoe[i] = shoe[j];
+                shoe[j] = tmp;
+            }
+            top = 0;
+            runningCount = system.initialRunningCount(decks);
+        }
+
+        private int draw() {
+            if (top == shoe.length) {
+                shuffle();
+            }
+            return shoe[top++];
+        }
+
+        private void see(int code) {
+            runningCount += system.tag(code);
+        }
+
+        public int getCardsRemaining() {
+            return shoe.length - top;
+        }
+
+        public int getRunningCount() {
+            return runningCount;
+        }
+
+        /** Same definition as {@link CardCounter#getTrueCount()}. */
+        public double getTrueCount() {
+            return runningCount / (Math.max(getCardsRemaining(), 13) / 52.0);
+        }
+
+        public Outcome getLastOutcome() {
+            return lastOutcome;
+        }
+
+        /** Plays one round and returns the change in balance. */
+        public int playRound(Policy policy, int bet) {
+            if (getCardsRemaining() < StandInServer.RESHUFFLE_AT) {
+                shuffle();
+            }
+            int p1 = draw();
+            int up = draw();
+            int p2 = draw();
+            int hole = draw();
+            see(p1);
+            see(up);
+            see(p2);
+
+            int playerHard = Card.points(p1) + Card.points(p2);
+            boolean playerAce = Card.points(p1) == 1 || Card.points(p2) == 1;
+            int upPoints = Card.points(up);
+            int dealerHard = upPoints + Card.points(hole);
+            boolean dealerAce = upPoints == 1 || Card.points(hole) == 1;
+
+            boolean playerBlackjack = playerAce && playerHard == 11;
+            boolean dealerBlackjack = dealerAce && dealerHard == 11;
+            if (playerBlackjack || dealerBlackjack) {
+                see(hole);
+                if (playerBlackjack && dealerBlackjack) {
+                    return settle(Outcome.PUSH, bet);
+                }
+                return settle(playerBlackjack ? Outcome.PLAYER_BLACKJACK : Outcome.DEALER_WINS, bet);
+            }
+
+            while (true) {
+                int total = best(playerHard, playerAce);
+                if (total >= 21 || !policy.hit(total, playerAce && playerHard <= 11, upPoints, getTrueCount())) {
+                    break;
+                }
+                int card = draw();
+                see(card);
+                playerHard += Card.points(card);
+                playerAce |= Card.points(card) == 1;
+                if (playerHard > 21) {
+                    see(hole);
+                    return settle(Outcome.DEALER_WINS, bet);
+                }
+            }
+
+            see(hole);
+            while (best(dealerHard, dealerAce) < 17) {
+                int card = draw();
+                see(card);
+                dealerHard += Card.points(card);
+                dealerAce |= Card.points(card) == 1;
+            }
+            int player = best(playerHard, playerAce);
+            int dealer = best(dealerHard, dealerAce);
+            if (dealer > 21 || player > dealer) {
+                return settle(Outcome.PLAYER_WINS, bet);
+            }
+            return settle(player == dealer ? Outcome.PUSH : Outcome.DEALER_WINS, bet);
+        }
+
+        private static int best(int hard, boolean ace) {
+            return (ace && hard <= 11) ? hard + 10 : hard;
+        }
+
+        private int settle(Outcome outcome, int bet) {
+            lastOutcome = outcome;
+            switch (outcome) {
+                case PLAYER_WINS:
+                    return bet;
+                case PLAYER_BLACKJACK:
+                    return bet * 3 / 2;
+                case DEALER_WINS:
+                    return -bet;
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Results */
+    /* ------------------------------------------------------------ */
+
+    /** Totals for a run; leaves are merged as the fork/join tree unwinds. */
+    public static final class Stats {
+        public long hands;
+        public long wins;
+        public long blackjacks;
+        public long pushes;
+        public long losses;
+        public long net;
+        public double sumSquares;
+        public int bet;
+
+        void record(Outcome outcome, int change) {
+            hands++;
+            switch (outcome) {
+                case PLAYER_WINS:
+                    wins++;
+                    break;
+                case PLAYER_BLACKJACK:
+                    blackjacks++;
+                    break;
+                case PUSH:
+                    pushes++;
+                    break;
+                default:
+                    losses++;
+                    break;
+            }
+            net += change;
+            sumSquares += (double) change * change;
+        }
+
+        Stats merge(Stats other) {
+            hands += other.hands;
+            wins += other.wins;
+            blackjacks += other.blackjacks;
+            pushes += other.pushes;
+            losses += other.losses;
+            net += other.net;
+            sumSquares += other.sumSquares;
+            return this;
+        }
+
+        /** Wins, blackjacks included, per hand. */
+        public double getWinRate() {
+            return (wins + blackjacks) / (double) hands;
+        }
+
+        /** Expected result per hand, as a fraction of the bet. */
+        public double getEv() {
+            return net / (double) hands / bet;
+        }
+
+        /** Variance of one hand's result, in squared bets. */
+        public double getVariance() {
+            double mean = net / (double) hands;
+            return (sumSquares / hands - mean * mean) / ((double) bet * bet);
+        }
+
+        @Override
+        public String toString() {
+            double stdError = Math.sqrt(getVariance() / hands);
+            return String.format("hands %,d  win %.4f  push %.4f  loss %.4f  EV %+.4f%% (+/- %.4f%%)  var %.4f",
+                    hands, getWinRate(), pushes / (double) hands, losses / (double) hands,
+                    getEv() * 100, 1.96 * stdError * 100, getVariance());
+        }
+    }
+
+    private static class RunTask extends RecursiveTask<Stats> {
+        private static final long serialVersionUID = 1L;
+        private final Policy policy;
+        private final long hands;
+        private final int bet;
+        private final int decks;
+        private final SplittableRandom random;
+
+        RunTask(Policy policy, long hands, int bet, int decks, SplittableRandom random) {
+            this.policy = policy;
+            this.hands = hands;
+            this.bet = bet;
+            this.decks = decks;
+            this.random = random;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (hands <= LEAF_HANDS) {
+                Table table = new Table(decks, random);
+                Stats stats = new Stats();
+                stats.bet = bet;
+                for (long i = 0; i < hands; i++) {
+                    int change = table.playRound(policy, bet);
+                    stats.record(table.getLastOutcome(), change);
+                }
+                return stats;
+            }
+            long half = hands / 2;
+            RunTask left = new RunTask(policy, half, bet, decks, random.split());
+            RunTask right = new RunTask(policy, hands - half, bet, decks, random.split());
+            left.fork();
+            return right.compute().merge(left.join());
+        }
+    }
+
+    /** Plays {@code hands} hands with one policy across the common pool. */
+    public static Stats run(Policy policy, long hands, int bet, int decks, long seed) {
+        checkBet(bet);
+        return ForkJoinPool.commonPool().invoke(new RunTask(policy, hands, bet, decks, new SplittableRandom(seed)));
+    }
+
+    /** The strategies the command line knows by name. */
+    public static Map<String, Policy> policies() {
+        StrategyEngine engine = new StrategyEngine();
+        Map<String, Policy> policies = new LinkedHashMap<>();
+        policies.put("basic", (total, soft, up, tc) -> engine.shouldHit(total, soft, up));
+        policies.put("hi-lo", (total, soft, up, tc) -> engine.shouldHit(total, soft, up, tc));
+        policies.put("mimic-dealer", (total, soft, up, tc) -> total < 17);
+        policies.put("never-bust", (total, soft, up, tc) -> soft ? total < 17 : total < 12);
+        return policies;
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Main */
+    /* ------------------------------------------------------------ */
+    public static void main(String[] args) {
+        Map<String, String> options = HeadlessPlayer.parseArgs(args);
+        long hands = Long.parseLong(options.getOrDefault("hands", "100000000"));
+        int bet = Integer.parseInt(options.getOrDefault("bet", "10"));
+        int decks = Integer.parseInt(options.getOrDefault("decks", "1"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        Map<String, Policy> all = policies();
+        List<String> names = new ArrayList<>(all.keySet());
+        if (options.containsKey("strategies")) {
+            names = List.of(options.get("strategies").split(","));
+        }
+
+        System.out.printf("%,d hands per strategy, %d deck(s), bet %d, seed %d, %d threads%n",
+                hands, decks, bet, seed, ForkJoinPool.commonPool().getParallelism());
+        for (String name : names) {
+            Policy policy = all.get(name);
+            if (policy == null) {
+                System.out.println("Unknown strategy: " + name + " (known: " + all.keySet() + ")");
+                continue;
+            }
+            long start = System.nanoTime();
+            Stats stats = run(policy, hands, bet, decks, seed);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-13s %s  [%.1f M hands/sec]%n", name, stats, hands / seconds / 1e6);
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for the campus Blackjack server. It serves the same REST
+ * endpoints under {@code /api/blackjack} and answers with the same JSON shapes
+ * as {@link GameState} and {@link SessionSummary}, so any client in this
+ * project can be pointed at it for offline, load or latency testing.
+ *
+ * Every session gets its own single-deck shoe seeded from the server seed and
+ * the order sessions were started in, so runs are reproducible. An optional
+ * fixed latency plus random jitter is added to every response.
+ *
+ * Usage: StandInServer [--port N] [--latency MS] [--jitter MS] [--seed N]
+ */
+public class StandInServer {
+    public static final String CONTEXT = "/api/blackjack";
+    public static final int MAX_BET = 1000;
+    static final int RESHUFFLE_AT = 15;
+
+    static {
+        // without TCP_NODELAY every small response waits out a delayed ACK (~40 ms);
+        // must be set before the first HttpServer is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final long seed;
+    private final AtomicLong sessionCounter = new AtomicLong();
+    private final Map<UUID, Table> tables = new ConcurrentHashMap<>();
+    private final Map<String, String> passwords = new ConcurrentHashMap<>();
+
+    public StandInServer(int port, long latencyMillis, long jitterMillis, long seed) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.seed = seed;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        // injected latency sleeps, so each exchange gets a cheap virtual thread
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext(CONTEXT, this::handle);
+    }
+
+    /** Starts a server on the given port (0 picks a free one). */
+    public static StandInServer start(int port, long latencyMillis, long jitterMillis, long seed)
+            throws IOException {
+        StandInServer s = new StandInServer(port, latencyMillis, jitterMillis, seed);
+        s.server.start();
+        return s;
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + CONTEXT;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Routing */
+    /* ------------------------------------------------------------ */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            injectLatency();
+            URI uri = exchange.getRequestURI();
+            String[] path = uri.getPath().substring(CONTEXT.length()).replaceAll("^/+", "").split("/");
+            Map<String, String> query = parseQuery(uri.getRawQuery());
+            String method = exchange.getRequestMethod();
+            Object body = route(method, path, query);
+            send(exchange, 200, body);
+        } catch (HttpError e) {
+            send(exchange, e.status, Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            send(exchange, 500, Map.of("error", String.valueOf(e)));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Object route(String method, String[] path, Map<String, String> query) {
+        if (path.length == 1 && path[0].equals("start") && method.equals("POST")) {
+            return startSession(query.get("username"), query.get("password")).toGameState();
+        }
+        if (path.length == 2 && path[0].equals("sessions") && method.equals("GET")) {
+            checkPassword(path[1], query.get("password"));
+            return listSessions(path[1]);
+        }
+        if (path.length == 2 && path[0].equals("resume") && method.equals("POST")) {
+            Table table = table(path[1], query);
+            synchronized (table) {
+                table.finished = false;
+                return table.toGameState();
+            }
+        }
+        if (path.length >= 2 && method.equals("POST")) {
+            Table table = table(path[0], query);
+            synchronized (table) {
+                switch (path[1]) {
+                    case "bet":
+                        if (path.length != 3) {
+                            break;
+                        }
+                        table.bet(parseInt(path[2]));
+                        return table.toGameState();
+                    case "hit":
+                        table.hit();
+                        return table.toGameState();
+                    case "stand":
+                        table.stand();
+                        return table.toGameState();
+                    case "reset":
+                        table.reset();
+                        return table.toGameState();
+                    case "finish":
+                        table.finished = true;
+                        return table.toGameState();
+                    default:
+                        break;
+                }
+            }
+        }
+        throw new HttpError(404, "No such endpoint: " + method + " " + String.join("/", path));
+    }
+
+    private void injectLatency() {
+        long delay = latencyMillis;
+        if (jitterMillis > 0) {
+            delay += ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = JsonUtil.GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            // e.g. ClientConnecter.warmUpAsync; headers only
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return query;
+    }
+
+    private static int parseInt(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Not a number: " + s);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Sessions */
+    /* ------------------------------------------------------------ */
+    private void checkPassword(String username, String password) {
+        if (username == null || password == null) {
+            throw new HttpError(401, "username and password are required");
+        }
+        String known = passwords.putIfAbsent(username, password);
+        if (known != null && !known.equals(password)) {
+            throw new HttpError(401, "Wrong password for " + username);
+        }
+    }
+
+    private Table startSession(String username, String password) {
+        checkPassword(username, password);
+        long n = sessionCounter.getAndIncrement();
+        Table table = new Table(UUID.randomUUID(), username, new Random(seed + n));
+        tables.put(table.sessionId, table);
+        return table;
+    }
+
+    private Table table(String id, Map<String, String> query) {
+        UUID sessionId;
+        try {
+            sessionId = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, "Bad session id: " + id);
+        }
+        Table table = tables.get(sessionId);
+        if (table == null) {
+            throw new HttpError(404, "No such session: " + id);
+        }
+        checkPassword(query.getOrDefault("username", table.username), query.get("password"));
+        if (!table.username.equals(query.getOrDefault("username", table.username))) {
+            throw new HttpError(403, "Session belongs to another user");
+        }
+        return table;
+    }
+
+    private List<SessionSummary> listSessions(String username) {
+        List<SessionSummary> list = new ArrayList<>();
+        for (Table table : tables.values()) {
+            if (table.username.equals(username)) {
+                synchronized (table) {
+                    list.add(table.toSummary());
+                }
+            }
+        }
+        return list;
+    }
+
+    private static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Game rules */
+    /* ------------------------------------------------------------ */
+
+    /** One session: its own shoe, hands and balance. Guarded by its own lock. */
+    private static class Table {
+        final UUID sessionId;
+        final String username;
+        final Random random;
+        final Card[] shoe = Card.values();
+        int shoeTop;
+        final List<Card> player = new ArrayList<>();
+        final List<Card> dealer = new ArrayList<>();
+        String phase = "BETTING";
+        String outcome;
+        int balance;
+        int currentBet = 10;
+        boolean reshuffled;
+        boolean finished;
+        LocalDateTime lastAccess = LocalDateTime.now();
+
+        Table(UUID sessionId, String username, Random random) {
+            this.sessionId = sessionId;
+            this.username = username;
+            this.random = random;
+            shuffle();
+            reshuffled = false;
+        }
+
+        void shuffle() {
+            for (int i = shoe.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                Card tmp = shoe[i];
+                shoe[i] = shoe[j];
+                shoe[j] = tmp;
+            }
+            shoeTop = 0;
+            reshuffled = true;
+        }
+
+        Card draw() {
+            if (shoeTop == shoe.length) {
+                shuffle();
+            }
+            return shoe[shoeTop++];
+        }
+
+        void bet(int amount) {
+            require("BETTING");
+            if (amount <= 0 || amount % 10 != 0 || amount > MAX_BET) {
+                throw new HttpError(400, "Bet must be a positive multiple of 10 up to " + MAX_BET);
+            }
+            reshuffled = false;
+            if (shoe.length - shoeTop < RESHUFFLE_AT) {
+                shuffle();
+            }
+            currentBet = amount;
+            player.add(draw());
+            dealer.add(draw());
+            player.add(draw());
+            dealer.add(draw());
+            phase = "PLAYER_TURN";
+
+            boolean playerBlackjack = value(player) == 21;
+            boolean dealerBlackjack = value(dealer) == 21;
+            if (playerBlackjack && dealerBlackjack) {
+                resolve("PUSH");
+            } else if (playerBlackjack) {
+                resolve("PLAYER_BLACKJACK");
+            } else if (dealerBlackjack) {
+                resolve("DEALER_WINS");
+            }
+        }
+
+        void hit() {
+            require("PLAYER_TURN");
+            reshuffled = false;
+            player.add(draw());
+            int total = value(player);
+            if (total > 21) {
+                resolve("DEALER_WINS");
+            } else if (total == 21) {
+                stand();
+            }
+        }
+
+        void stand() {
+            require("PLAYER_TURN");
+            // dealer stands on all 17s
+            while (value(dealer) < 17) {
+                dealer.add(draw());
+            }
+            int playerTotal = value(player);
+            int dealerTotal = value(dealer);
+            if (dealerTotal > 21 || playerTotal > dealerTotal) {
+                resolve("PLAYER_WINS");
+            } else if (playerTotal == dealerTotal) {
+                resolve("PUSH");
+            } else {
+                resolve("DEALER_WINS");
+            }
+        }
+
+        void reset() {
+            if (phase.equals("PLAYER_TURN")) {
+                throw new HttpError(409, "Hand is still in play");
+            }
+            player.clear();
+            dealer.clear();
+            outcome = null;
+            reshuffled = false;
+            phase = "BETTING";
+        }
+
+        private void resolve(String result) {
+            outcome = result;
+            phase = "RESOLVED";
+            switch (result) {
+                case "PLAYER_WINS":
+                    balance += currentBet;
+                    break;
+                case "PLAYER_BLACKJACK":
+                    balance += currentBet * 3 / 2;
+                    break;
+                case "DEALER_WINS":
+                    balance -= currentBet;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void require(String expected) {
+            lastAccess = LocalDateTime.now();
+            if (!phase.equals(expected)) {
+                throw new HttpError(409, "Expected phase " + expected + " but was " + phase);
+            }
+        }
+
+        static int value(List<Card> hand) {
+            int total = 0;
+            boolean ace = false;
+            for (Card c : hand) {
+                int rank = c.ordinal() % 13; // 0 = two ... 8 = ten, 9-11 = J/Q/K, 12 = ace
+                if (rank == 12) {
+                    ace = true;
+                    total += 1;
+                } else {
+                    total += Math.min(rank + 2, 10);
+                }
+            }
+            return (ace && total <= 11) ? total + 10 : total;
+        }
+
+        GameState toGameState() {
+            boolean hidden = phase.equals("PLAYER_TURN");
+            GameState state = new GameState();
+            state.sessionId = sessionId;
+            for (Card c : player) {
+                state.addPlayerCard(c.ordinal());
+            }
+            state.playerValue = value(player);
+            for (int i = 0; i < dealer.size(); i++) {
+                state.addDealerCard(hidden && i == 1 ? Card.HIDDEN_CODE : dealer.get(i).ordinal());
+            }
+            state.dealerValue = hidden ? GameState.HIDDEN_VALUE : value(dealer);
+            state.phase = phase;
+            state.outcome = outcome;
+            state.balance = balance;
+            state.currentBet = currentBet;
+            state.canHit = hidden;
+            state.canStand = hidden;
+            state.gameOver = phase.equals("RESOLVED");
+            state.cardsRemaining = shoe.length - shoeTop;
+            state.reshuffled = reshuffled;
+            return state;
+        }
+
+        SessionSummary toSummary() {
+            SessionSummary summary = new SessionSummary();
+            summary.sessionId = sessionId;
+            summary.balance = balance;
+            summary.currentBet = currentBet;
+            summary.phase = phase;
+            summary.outcome = outcome;
+            summary.lastAccess = lastAccess;
+            return summary;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Main */
+    /* ------------------------------------------------------------ */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = HeadlessPlayer.parseArgs(args);
+        int port = Integer.parseInt(options.getOrDefault("port", "8080"));
+        long latency = Long.parseLong(options.getOrDefault("latency", "0"));
+        long jitter = Long.parseLong(options.getOrDefault("jitter", "0"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        StandInServer server = start(port, latency, jitter, seed);
+        System.out.println("Stand-in Blackjack server listening on " + server.getBaseUrl());
+        System.out.println("Latency " + latency + " ms + up to " + jitter + " ms jitter, seed " + seed);
+    }
+}
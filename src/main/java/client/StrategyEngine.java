@@ -0,0 +1,133 @@
+package client;
+
+/**
+ * Hit-or-stand decisions from precomputed tables. The server offers no
+ * doubling, splitting or surrender, so the charts are the hit/stand part
+ * of dealer-stands-on-soft-17 basic strategy.
+ *
+ * Every decision is one array load. The tables are indexed by player total
+ * and dealer upcard (2 ... 10, ace last). With a true count, hard totals
+ * use the Hi-Lo index plays instead: stand when the true count is at or
+ * above the cell's index. Other counting systems get the same indices as
+ * an approximation.
+ */
+public final class StrategyEngine {
+    private static final int UPCARDS = 10;
+
+    // rows are totals, columns dealer 2 3 4 5 6 7 8 9 T A
+    private static final String[] HARD_CHART = {
+            /* 4-11 */ "HHHHHHHHHH", "HHHHHHHHHH", "HHHHHHHHHH", "HHHHHHHHHH",
+            "HHHHHHHHHH", "HHHHHHHHHH", "HHHHHHHHHH", "HHHHHHHHHH",
+            /* 12 */ "HHSSSHHHHH",
+            /* 13 */ "SSSSSHHHHH",
+            /* 14 */ "SSSSSHHHHH",
+            /* 15 */ "SSSSSHHHHH",
+            /* 16 */ "SSSSSHHHHH",
+            /* 17-21 */ "SSSSSSSSSS", "SSSSSSSSSS", "SSSSSSSSSS", "SSSSSSSSSS", "SSSSSSSSSS",
+    };
+    private static final int HARD_FIRST = 4;
+
+    private static final String[] SOFT_CHART = {
+            /* 12-17 */ "HHHHHHHHHH", "HHHHHHHHHH", "HHHHHHHHHH", "HHHHHHHHHH", "HHHHHHHHHH", "HHHHHHHHHH",
+            /* 18 */ "SSSSSSSHHH",
+            /* 19-21 */ "SSSSSSSSSS", "SSSSSSSSSS", "SSSSSSSSSS",
+    };
+    private static final int SOFT_FIRST = 12;
+
+    // Hi-Lo stand indices for hard totals: {total, upcard points, index}
+    private static final int[][] HARD_INDICES = {
+            { 16, 10, 0 }, { 15, 10, 4 }, { 16, 9, 5 },
+            { 13, 2, -1 }, { 13, 3, -2 },
+            { 12, 2, 3 }, { 12, 3, 2 }, { 12, 4, 0 }, { 12, 5, -2 }, { 12, 6, -1 },
+    };
+
+    // stand thresholds in tenths of a true count
+    private static final int ALWAYS = Integer.MIN_VALUE;
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    // [total * UPCARDS + upcard]: true to hit; totals past the charts stand
+    private static final boolean[] HARD_HIT = new boolean[32 * UPCARDS];
+    private static final boolean[] SOFT_HIT = new boolean[32 * UPCARDS];
+    private static final int[] HARD_STAND_AT = new int[32 * UPCARDS];
+
+    static {
+        load(HARD_CHART, HARD_FIRST, HARD_HIT);
+        load(SOFT_CHART, SOFT_FIRST, SOFT_HIT);
+        for (int i = 0; i < HARD_HIT.length; i++) {
+            HARD_STAND_AT[i] = HARD_HIT[i] ? NEVER : ALWAYS;
+        }
+        for (int[] index : HARD_INDICES) {
+            HARD_STAND_AT[index[0] * UPCARDS + upcardIndex(index[1])] = index[2] * 10;
+        }
+    }
+
+    private static void load(String[] chart, int first, boolean[] table) {
+        // anything below the chart hits
+        for (int total = 0; total < first; total++) {
+            for (int up = 0; up < UPCARDS; up++) {
+                table[total * UPCARDS + up] = true;
+            }
+        }
+        for (int row = 0; row < chart.length; row++) {
+            for (int up = 0; up < UPCARDS; up++) {
+                table[(first + row) * UPCARDS + up] = chart[row].charAt(up) == 'H';
+            }
+        }
+    }
+
+    // dealer upcard points (ace as 1 or 11) to a column
+    private static int upcardIndex(int points) {
+        return points == 1 || points == 11 ? 9 : points - 2;
+    }
+
+    /** Basic strategy. {@code upcardPoints} is 2 to 10, with the ace as 1 or 11. */
+    public boolean shouldHit(int total, boolean soft, int upcardPoints) {
+        if (total > 21) {
+            return false;
+        }
+        int cell = total * UPCARDS + upcardIndex(upcardPoints);
+        return soft ? SOFT_HIT[cell] : HARD_HIT[cell];
+    }
+
+    /** Basic strategy with Hi-Lo index plays for the given true count. */
+    public boolean shouldHit(int total, boolean soft, int upcardPoints, double trueCount) {
+        if (soft || Double.isNaN(trueCount)) {
+            return shouldHit(total, soft, upcardPoints);
+        }
+        if (total > 21) {
+            return false;
+        }
+        return (int) Math.floor(trueCount * 10) < HARD_STAND_AT[total * UPCARDS + upcardIndex(upcardPoints)];
+    }
+
+    public boolean shouldHit(Hand player, Card upcard, double trueCount) {
+        return shouldHit(player.total(), player.isSoft(), upcard.points(), trueCount);
+    }
+
+    /**
+     * Decides from a server response: the player's value, its softness worked
+     * out from the cards, and the dealer's first card. Pass NaN for no count.
+     */
+    public boolean shouldHit(GameState state, double trueCount) {
+        int up = state.dealerCount > 0 ? state.dealerCodes[0] : Card.NO_CODE;
+        if (up < 0) {
+            throw new IllegalArgumentException("No dealer upcard in " + state.dealerCards);
+        }
+        return shouldHit(state.playerValue, isSoft(state.playerCodes, state.playerCount), Card.points(up),
+                trueCount);
+    }
+
+    private static boolean isSoft(byte[] codes, int count) {
+        int hard = 0;
+        boolean ace = false;
+        for (int i = 0; i < count; i++) {
+            int code = codes[i];
+            if (code >= 0) {
+                int points = Card.points(code);
+                hard += points;
+                ace |= points == 1;
+            }
+        }
+        return ace && hard <= 11;
+    }
+}
@@ -7,7 +7,7 @@ import java.net.http.HttpResponse;
 
 public class TestURLs 
 {
-    static final String baseUrl = "http://euclid.knox.edu:8080/api/blackjack";
+    static final String baseUrl = System.getProperty("blackjack.url", "http://euclid.knox.edu:8080/api/blackjack");
     static final String username = "dnduong";
     static final String password = "f1484a0";
     static final String params = "?username=" + username + "&password=" + password;
@@ -0,0 +1,53 @@
+package client;
+
+/**
+ * A token bucket that hands out reservations instead of blocking. Tokens
+ * refill at a steady rate up to the burst size. {@link #reserve()} always
+ * takes one and returns how long to wait before using it: zero while tokens
+ * are left, otherwise the time until the bucket has caught up. Waits queue
+ * in order, so callers can schedule the work with a delayed executor rather
+ * than parking a thread.
+ */
+public final class TokenBucket {
+    private final double perNano;
+    private final double burst;
+    private double tokens;
+    private long last;
+
+    public TokenBucket(double perSecond, int burst) {
+        if (perSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.perNano = perSecond / 1e9;
+        this.burst = burst;
+        this.tokens = burst;
+        this.last = System.nanoTime();
+    }
+
+    /** Takes a token; returns the nanoseconds to wait before it may be used. */
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - last) * perNano);
+        last = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / perNano);
+    }
+
+    /** Gives back a reserved token that was never used. */
+    public synchronized void refund() {
+        tokens = Math.min(burst, tokens + 1);
+    }
+
+    public double getRate() {
+        return perNano * 1e9;
+    }
+
+    public int getBurst() {
+        return (int) burst;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1f/s burst %d", getRate(), getBurst());
+    }
+}
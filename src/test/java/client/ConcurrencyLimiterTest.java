@@ -0,0 +1,96 @@
+package client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drives a limiter with simulated answers: the limiter is kept full, and
+ * each answer completes the oldest request with a chosen latency.
+ */
+public class ConcurrencyLimiterTest {
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void noisyLocalLatencyKeepsTheLimit() {
+        Sim sim = new Sim(new ConcurrencyLimiter());
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < 20_000; i++) {
+            // a fast local server on a busy machine: ~200 us, often double, now and then a long pause
+            long nanos = 200_000 + random.nextLong(200_000);
+            if (random.nextInt(100) == 0) {
+                nanos += random.nextLong(20 * MS);
+            }
+            sim.answer(nanos);
+        }
+        assertTrue(sim.limiter.getLimit() > ConcurrencyLimiter.DEFAULT_INITIAL, sim.limiter.toString());
+        assertTrue(sim.limiter.getBackoffs() < 20, sim.limiter.toString());
+    }
+
+    @Test
+    public void sustainedInflationCutsTheLimit() {
+        // capped, so a round trip is at most 64 answers
+        Sim sim = new Sim(new ConcurrencyLimiter(ConcurrencyLimiter.DEFAULT_INITIAL, 1, 64));
+        for (int i = 0; i < 2000; i++) {
+            sim.answer(MS);
+        }
+        int before = sim.limiter.getLimit();
+        // well past the time the baseline takes to follow a rise, were it not held
+        for (int i = 0; i < 4 * ConcurrencyLimiter.BASELINE_WINDOW; i++) {
+            sim.answer(5 * MS);
+            if (i >= 100) {
+                assertTrue(sim.limiter.getLimit() < before, "answer " + i + ": " + sim.limiter);
+            }
+        }
+        assertTrue(sim.limiter.getBackoffs() > 1, sim.limiter.toString());
+    }
+
+    @Test
+    public void slowerServerIsAcceptedAtTheFloor() {
+        Sim sim = new Sim(new ConcurrencyLimiter(ConcurrencyLimiter.DEFAULT_INITIAL, 1, 64));
+        for (int i = 0; i < 2000; i++) {
+            sim.answer(MS);
+        }
+        // cutting to the floor doesn't help, so in time 5 ms becomes the new baseline
+        for (int i = 0; i < 12 * ConcurrencyLimiter.BASELINE_WINDOW; i++) {
+            sim.answer(5 * MS);
+        }
+        assertEquals(64, sim.limiter.getLimit());
+    }
+
+    @Test
+    public void dropsCutOncePerRoundTrip() {
+        Sim sim = new Sim(new ConcurrencyLimiter());
+        sim.fill();
+        while (!sim.sent.isEmpty()) {
+            sim.limiter.onDropped(sim.sent.poll());
+        }
+        assertEquals(1, sim.limiter.getBackoffs());
+        assertEquals((int) (ConcurrencyLimiter.DEFAULT_INITIAL * ConcurrencyLimiter.SLOW_START_BACKOFF),
+                sim.limiter.getLimit());
+    }
+
+    private static final class Sim {
+        final ConcurrencyLimiter limiter;
+        final ArrayDeque<Long> sent = new ArrayDeque<>();
+
+        Sim(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        void fill() {
+            while (limiter.getInFlight() < limiter.getLimit()) {
+                limiter.execute(() -> sent.add(System.nanoTime()));
+            }
+        }
+
+        void answer(long nanos) {
+            fill();
+            limiter.onSuccess(Endpoint.BET, sent.poll(), nanos);
+        }
+    }
+}
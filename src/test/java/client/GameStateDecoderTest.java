@@ -0,0 +1,124 @@
+package client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The hand-written decoder must read every body the same way as
+ * {@link GameStateAdapter}, which is Gson underneath. Each case decodes one
+ * body both ways and compares every field.
+ */
+public class GameStateDecoderTest {
+    private static final String ID = "3f2b8c1e-9d4a-4e6b-a1c2-0b9f8e7d6c5a";
+
+    @Test
+    public void fullStateMatchesAdapter() throws IOException {
+        check("{\"sessionId\":\"" + ID + "\",\"playerCards\":[\"TEN OF HEARTS\",\"ACE OF SPADES\"],"
+                + "\"playerValue\":21,\"dealerCards\":[\"KING OF CLUBS\",\"SEVEN OF DIAMONDS\"],"
+                + "\"dealerValue\":17,\"phase\":\"RESOLVED\",\"outcome\":\"PLAYER_BLACKJACK\",\"balance\":1150,"
+                + "\"currentBet\":100,\"canHit\":false,\"canStand\":false,\"gameOver\":true,"
+                + "\"cardsRemaining\":287,\"reshuffled\":true}");
+    }
+
+    @Test
+    public void hiddenDealerCardMatchesAdapter() throws IOException {
+        check("{\"sessionId\":\"" + ID + "\",\"playerCards\":[\"2C\",\"10h\"],\"playerValue\":12,"
+                + "\"dealerCards\":[\"QUEEN OF HEARTS\",\"???\"],\"dealerValue\":null,\"phase\":\"PLAYER_TURN\","
+                + "\"outcome\":null,\"balance\":990,\"currentBet\":10,\"canHit\":true,\"canStand\":true,"
+                + "\"gameOver\":false,\"cardsRemaining\":300,\"reShuffled\":false}");
+    }
+
+    @Test
+    public void unknownFieldsAreSkipped() throws IOException {
+        check("{\"table\":{\"name\":\"a } ] \\\" [ {\",\"seats\":[1,2,{\"x\":[]}],\"open\":true},"
+                + "\"sessionId\":\"" + ID + "\",\"rules\":[[\"H17\"],{\"das\":null}],\"score\":-1.5e3,"
+                + "\"phase\":\"BETTING\",\"note\":\"café\",\"balance\":1000,\"flag\":false,\"extra\":null}");
+    }
+
+    @Test
+    public void escapedStringsMatchAdapter() throws IOException {
+        check("{\"sessionId\":\"" + ID + "\",\"phase\":\"PLAYER\\u005fTURN\",\"outcome\":\"PUSH\\/\\\"\\\\\\t\","
+                + "\"playerCards\":[\"TWO OF\\u0020CLUBS\"],\"pha\\u0073e\":\"RESOLVED\"}");
+    }
+
+    @Test
+    public void upperCaseSessionIdMatchesAdapter() throws IOException {
+        check("{\"sessionId\":\"" + ID.toUpperCase() + "\"}");
+        check("{\"sessionId\":\"1-2-3-4-5\"}");
+    }
+
+    @Test
+    public void emptyObjectMatchesAdapter() throws IOException {
+        check("{}");
+        check(" { } ");
+        check("{\"playerCards\":[],\"dealerCards\":[]}");
+    }
+
+    @Test
+    public void refillClearsThePreviousState() throws IOException {
+        GameStateDecoder decoder = new GameStateDecoder();
+        decode(decoder, "{\"sessionId\":\"" + ID + "\",\"playerCards\":[\"2C\",\"3C\"],\"dealerValue\":18,"
+                + "\"outcome\":\"PUSH\",\"gameOver\":true,\"reshuffled\":true}");
+        String json = "{\"phase\":\"BETTING\",\"balance\":5}";
+        assertMatches(GameState.fromJson(json), decode(decoder, json), json);
+    }
+
+    @Test
+    public void sameSessionKeepsItsId() throws IOException {
+        GameStateDecoder decoder = new GameStateDecoder();
+        UUID first = decode(decoder, "{\"sessionId\":\"" + ID + "\"}").sessionId;
+        assertSame(first, decode(decoder, "{\"sessionId\":\"" + ID + "\",\"balance\":1}").sessionId);
+        UUID other = decode(decoder, "{\"sessionId\":\"" + UUID.randomUUID() + "\"}").sessionId;
+        assertNotSame(first, other);
+    }
+
+    @Test
+    public void malformedBodiesThrow() {
+        String[] bodies = { "", "[]", "{\"balance\":}", "{\"balance\":1.5}", "{\"balance\":99999999999}",
+                "{\"phase\":\"BETTING\"", "{\"phase\":\"BETTING", "{\"canHit\":yes}", "{\"table\":{\"a\":[1,2}" };
+        for (String body : bodies) {
+            assertThrows(IOException.class, () -> decode(new GameStateDecoder(), body));
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* Helpers */
+    /* ------------------------------------------------------------ */
+    private static void check(String json) throws IOException {
+        assertMatches(GameState.fromJson(json), decode(new GameStateDecoder(), json), json);
+    }
+
+    private static GameState decode(GameStateDecoder decoder, String json) throws IOException {
+        return decoder.decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertMatches(GameState expected, GameState actual, String json) {
+        assertEquals(expected.sessionId, actual.sessionId, json);
+        assertArrayEquals(Arrays.copyOf(expected.playerCodes, expected.playerCount),
+                Arrays.copyOf(actual.playerCodes, actual.playerCount), json);
+        assertArrayEquals(Arrays.copyOf(expected.dealerCodes, expected.dealerCount),
+                Arrays.copyOf(actual.dealerCodes, actual.dealerCount), json);
+        assertEquals(expected.playerValue, actual.playerValue, json);
+        assertEquals(expected.dealerValue, actual.dealerValue, json);
+        assertEquals(expected.phase, actual.phase, json);
+        assertEquals(expected.outcome, actual.outcome, json);
+        assertEquals(expected.balance, actual.balance, json);
+        assertEquals(expected.currentBet, actual.currentBet, json);
+        assertEquals(expected.canHit, actual.canHit, json);
+        assertEquals(expected.canStand, actual.canStand, json);
+        assertEquals(expected.gameOver, actual.gameOver, json);
+        assertEquals(expected.cardsRemaining, actual.cardsRemaining, json);
+        assertEquals(expected.reshuffled, actual.reshuffled, json);
+    }
+}
@@ -0,0 +1,253 @@
+package client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The fork/join scan must give the same answer however the file is split.
+ * A synthetic history of interleaved sessions is scanned with leaves small
+ * enough that hands, counts and balance paths straddle many segment
+ * boundaries, and compared with a plain sequential scan written here.
+ */
+public class HistoryQueryTest {
+    private static final int[] LEAVES = { 1, 2, 3, 7, 64, Integer.MAX_VALUE };
+
+    @Test
+    public void splitScansMatchSequentialScan() throws IOException {
+        withHistory(1, 12, 4000, (reader, ids) -> {
+            Naive naive = Naive.scan(reader, null);
+            for (int leaf : LEAVES) {
+                HistoryQuery.Result result = HistoryQuery.run(reader, null, leaf);
+                String at = "leaf " + leaf;
+                assertEquals(reader.size(), result.getRecords(), at);
+                assertEquals(ids.size(), result.getSessions(), at);
+                assertArrayEquals(naive.hands, result.hands, at);
+                assertArrayEquals(naive.wagered, result.wagered, at);
+                assertArrayEquals(naive.net, result.net, at);
+                for (UUID id : ids) {
+                    assertEquals(naive.drawdown(id), result.getMaxDrawdown(id), at + " " + id);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void tablesDoNotDependOnSplit() throws IOException {
+        withHistory(2, 30, 6000, (reader, ids) -> {
+            HistoryQuery.Result whole = HistoryQuery.run(reader, null, Integer.MAX_VALUE);
+            for (int leaf : LEAVES) {
+                HistoryQuery.Result split = HistoryQuery.run(reader, null, leaf);
+                assertEquals(whole.evTable(), split.evTable(), "leaf " + leaf);
+                assertEquals(whole.bustTable(), split.bustTable(), "leaf " + leaf);
+                assertEquals(whole.drawdownTable(Integer.MAX_VALUE), split.drawdownTable(Integer.MAX_VALUE),
+                        "leaf " + leaf);
+            }
+        });
+    }
+
+    @Test
+    public void oneSessionMatchesSequentialScan() throws IOException {
+        withHistory(3, 8, 3000, (reader, ids) -> {
+            for (UUID id : ids) {
+                Naive naive = Naive.scan(reader, id);
+                HistoryQuery.Result result = HistoryQuery.run(reader, id, 5);
+                assertEquals(1, result.getSessions());
+                assertArrayEquals(naive.wagered, result.wagered, id.toString());
+                assertArrayEquals(naive.net, result.net, id.toString());
+                assertEquals(naive.drawdown(id), result.getMaxDrawdown(id), id.toString());
+            }
+        });
+    }
+
+    @Test
+    public void handsBeforeAnyCountAreUnknown() throws IOException {
+        withHistory(4, 10, 2000, (reader, ids) -> {
+            HistoryQuery.Result result = HistoryQuery.run(reader, null, 1);
+            // the generator starts some sessions mid-shoe, with no betting record first
+            assertTrue(result.hands[HistoryQuery.UNKNOWN_BUCKET] > 0);
+        });
+    }
+
+    /* ------------------------------------------------------------ */
+    /* The reference: one pass, in file order, no merging */
+    /* ------------------------------------------------------------ */
+    private static final class Naive {
+        final long[] hands = new long[HistoryQuery.UNKNOWN_BUCKET + 1];
+        final long[] wagered = new long[HistoryQuery.UNKNOWN_BUCKET + 1];
+        final long[] net = new long[HistoryQuery.UNKNOWN_BUCKET + 1];
+        final Map<UUID, Integer> lastCount = new HashMap<>();
+        final Map<UUID, Long> peak = new HashMap<>();
+        final Map<UUID, Long> drawdown = new HashMap<>();
+
+        static Naive scan(HandHistoryReader reader, UUID only) {
+            Naive n = new Naive();
+            for (long i = 0; i < reader.size(); i++) {
+                UUID id = reader.sessionId(i);
+                if (only != null && !only.equals(id)) {
+                    continue;
+                }
+                long balance = reader.balance(i);
+                Long high = n.peak.get(id);
+                n.drawdown.merge(id, high == null ? 0 : Math.max(0, high - balance), Math::max);
+                n.peak.put(id, high == null ? balance : Math.max(high, balance));
+
+                if (reader.phase(i) == HandHistory.PHASE_BETTING) {
+                    n.lastCount.put(id, reader.trueCountTenths(i));
+                    continue;
+                }
+                Endpoint endpoint = reader.endpoint(i);
+                Simulator.Outcome outcome = reader.outcome(i);
+                if (reader.phase(i) != HandHistory.PHASE_RESOLVED || outcome == null
+                        || (endpoint != Endpoint.BET && endpoint != Endpoint.HIT && endpoint != Endpoint.STAND)) {
+                    continue;
+                }
+                Integer count = n.lastCount.get(id);
+                int b = count == null ? HistoryQuery.UNKNOWN_BUCKET : HistoryQuery.bucket(count);
+                n.hands[b]++;
+                n.wagered[b] += reader.bet(i);
+                n.net[b] += HistoryQuery.won(outcome, reader.bet(i));
+            }
+            return n;
+        }
+
+        long drawdown(UUID id) {
+            return drawdown.getOrDefault(id, -1L);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /* A synthetic history */
+    /* ------------------------------------------------------------ */
+    private interface Check {
+        void run(HandHistoryReader reader, List<UUID> ids) throws IOException;
+    }
+
+    private static final class Session {
+        final UUID id;
+        boolean started;
+        boolean inHand;
+        boolean resolved;
+        int balance;
+        int bet;
+
+        Session(UUID id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Writes {@code steps} records for {@code sessions} interleaved sessions:
+     * starts, bets, hits, stands, resets and the odd resume. Some sessions
+     * begin mid-hand with no betting record, and some counts are missing.
+     */
+    private static void withHistory(long seed, int sessions, int steps, Check check) throws IOException {
+        Path dir = Files.createTempDirectory("history-query-test");
+        Path file = dir.resolve("hands.bjh");
+        try {
+            SplittableRandom random = new SplittableRandom(seed);
+            List<Session> all = new ArrayList<>();
+            List<UUID> ids = new ArrayList<>();
+            for (int s = 0; s < sessions; s++) {
+                Session session = new Session(new UUID(random.nextLong(), random.nextLong()));
+                all.add(session);
+                ids.add(session.id);
+            }
+            try (HandHistory history = HandHistory.open(file, 0)) {
+                GameState state = new GameState();
+                for (int step = 0; step < steps; step++) {
+                    step(all.get(random.nextInt(sessions)), random, history, state);
+                }
+            }
+            try (HandHistoryReader reader = HandHistoryReader.open(file)) {
+                check.run(reader, ids);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void step(Session s, SplittableRandom random, HandHistory history, GameState state) {
+        state.clear();
+        state.sessionId = s.id;
+        if (!s.started && random.nextInt(4) > 0) {
+            s.started = true;
+            write(history, Endpoint.START, state, s, "BETTING", null, count(random));
+            return;
+        }
+        s.started = true;
+        if (s.resolved) {
+            if (random.nextInt(10) == 0) {
+                write(history, Endpoint.RESUME, state, s, "RESOLVED", "PUSH", Double.NaN);
+                return;
+            }
+            s.resolved = false;
+            write(history, Endpoint.RESET, state, s, "BETTING", null, count(random));
+            return;
+        }
+        if (!s.inHand) {
+            s.bet = 10 * (1 + random.nextInt(10));
+            s.inHand = true;
+            state.addDealerCard(random.nextInt(52));
+            state.addPlayerCard(random.nextInt(52));
+            state.addPlayerCard(random.nextInt(52));
+            if (random.nextInt(10) == 0) {
+                resolve(history, Endpoint.BET, state, s, random.nextBoolean() ? "PLAYER_BLACKJACK" : "DEALER_WINS",
+                        21, random);
+            } else {
+                state.playerValue = 4 + random.nextInt(17);
+                write(history, Endpoint.BET, state, s, "PLAYER_TURN", null, Double.NaN);
+            }
+            return;
+        }
+        state.addDealerCard(random.nextInt(52));
+        if (random.nextInt(3) == 0) {
+            if (random.nextInt(3) == 0) {
+                resolve(history, Endpoint.HIT, state, s, "DEALER_WINS", 22 + random.nextInt(8), random);
+            } else {
+                state.playerValue = 12 + random.nextInt(9);
+                write(history, Endpoint.HIT, state, s, "PLAYER_TURN", null, Double.NaN);
+            }
+            return;
+        }
+        String[] outcomes = { "PLAYER_WINS", "DEALER_WINS", "PUSH" };
+        resolve(history, Endpoint.STAND, state, s, outcomes[random.nextInt(3)], 12 + random.nextInt(10), random);
+    }
+
+    private static void resolve(HandHistory history, Endpoint endpoint, GameState state, Session s, String outcome,
+            int playerValue, SplittableRandom random) {
+        s.balance += HistoryQuery.won(Simulator.Outcome.valueOf(outcome), s.bet);
+        s.inHand = false;
+        s.resolved = true;
+        state.playerValue = playerValue;
+        state.dealerValue = 17 + random.nextInt(10);
+        write(history, endpoint, state, s, "RESOLVED", outcome, Double.NaN);
+    }
+
+    private static void write(HandHistory history, Endpoint endpoint, GameState state, Session s, String phase,
+            String outcome, double trueCount) {
+        state.phase = phase;
+        state.outcome = outcome;
+        state.balance = s.balance;
+        state.currentBet = s.bet;
+        history.append(endpoint, state, trueCount);
+    }
+
+    // mostly a count in [-12, 12], sometimes none
+    private static double count(SplittableRandom random) {
+        return random.nextInt(8) == 0 ? Double.NaN : random.nextDouble(-12, 12);
+    }
+}